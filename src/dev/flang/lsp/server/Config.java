@@ -27,6 +27,8 @@ Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
 package dev.flang.lsp.server;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.eclipse.lsp4j.ClientCapabilities;
@@ -40,6 +42,8 @@ import dev.flang.lsp.server.feature.InlayHints;
 import dev.flang.shared.Context;
 import dev.flang.shared.ErrorHandling;
 import dev.flang.shared.ParserTool;
+import dev.flang.shared.PositionEncoding;
+import dev.flang.shared.ServePolicy;
 import dev.flang.shared.Util;
 import dev.flang.shared.SourceText;
 import dev.flang.util.FuzionOptions;
@@ -53,6 +57,15 @@ public class Config
   private static Transport _transport;
   private static ClientCapabilities _capabilities;
 
+  /**
+   * the parse latency sensitive requests are answered from, by request type,
+   * configurable via "serve_last_good". Other requests wait for the current parse.
+   */
+  private static final Map<String, ServePolicy> _servePolicies = new ConcurrentHashMap<>(Map.of(
+    "hover", ServePolicy.LastGood,
+    "document_symbol", ServePolicy.LastGood,
+    "semantic_tokens", ServePolicy.LastGood));
+
   // can be "messages", "off", "verbose"
   private static String _trace = "off";
   private static int serverPort;
@@ -114,6 +127,33 @@ public class Config
     SetCodeLensOptions(json);
     SetInlayHint(json);
     SetFuirEnabled(json);
+    SetServePolicies(json);
+  }
+
+  public static ServePolicy ServePolicy(String requestType)
+  {
+    return _servePolicies.getOrDefault(requestType, ServePolicy.Current);
+  }
+
+  private static void SetServePolicies(JsonObject json)
+  {
+    try
+      {
+        var serveLastGood = json.getAsJsonObject("serve_last_good");
+        if (serveLastGood != null)
+          {
+            serveLastGood
+              .entrySet()
+              .forEach(e -> _servePolicies.put(e.getKey(),
+                ErrorHandling.ResultOrDefault(() -> e.getValue().getAsBoolean(), false)
+                  ? ServePolicy.LastGood
+                  : ServePolicy.Current));
+          }
+      }
+    catch (Exception e)
+      {
+        Context.Logger.Error("[Config] parsing of serve_last_good options failed.");
+      }
   }
 
   private static void SetFuirEnabled(JsonObject json)
@@ -232,4 +272,18 @@ public class Config
     return _capabilities;
   }
 
+  /**
+   * set the position encoding negotiated with the client, positions
+   * and semantic tokens are converted to it.
+   */
+  public static void setPositionEncoding(PositionEncoding positionEncoding)
+  {
+    Context.PositionEncoding = positionEncoding;
+  }
+
+  public static PositionEncoding getPositionEncoding()
+  {
+    return Context.PositionEncoding;
+  }
+
 }
@@ -26,17 +26,22 @@ Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
 
 package dev.flang.lsp.server;
 
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.eclipse.lsp4j.CodeLensOptions;
 import org.eclipse.lsp4j.CompletionOptions;
 import org.eclipse.lsp4j.ConfigurationItem;
 import org.eclipse.lsp4j.ConfigurationParams;
+import org.eclipse.lsp4j.DidChangeWatchedFilesRegistrationOptions;
 import org.eclipse.lsp4j.ExecuteCommandOptions;
+import org.eclipse.lsp4j.FileSystemWatcher;
 import org.eclipse.lsp4j.HoverOptions;
 import org.eclipse.lsp4j.InitializeParams;
 import org.eclipse.lsp4j.InitializeResult;
@@ -51,6 +56,7 @@ import org.eclipse.lsp4j.SetTraceParams;
 import org.eclipse.lsp4j.SignatureHelpOptions;
 import org.eclipse.lsp4j.TextDocumentSyncKind;
 import org.eclipse.lsp4j.WorkDoneProgressCancelParams;
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
 import org.eclipse.lsp4j.services.LanguageServer;
 import org.eclipse.lsp4j.services.NotebookDocumentService;
 import org.eclipse.lsp4j.services.TextDocumentService;
@@ -62,6 +68,9 @@ import dev.flang.lsp.server.feature.SemanticToken;
 import dev.flang.lsp.server.feature.SignatureHelper;
 import dev.flang.shared.Concurrency;
 import dev.flang.shared.Context;
+import dev.flang.shared.PositionEncoding;
+import dev.flang.shared.Util;
+import dev.flang.shared.Workspace;
 
 /**
  * does the initialization of language server features
@@ -76,11 +85,41 @@ public class FuzionLanguageServer implements LanguageServer
 
     Context.Logger.Log("[client capabilites] " + Config.getClientCapabilities().toString());
 
+    Workspace.SetFolders(WorkspaceFolders(params));
+
+    Config.setPositionEncoding(PositionEncoding.Negotiate(ClientPositionEncodings(params)));
+
     final InitializeResult res = new InitializeResult(getServerCapabilities());
 
     return CompletableFuture.supplyAsync(() -> res);
   }
 
+  /**
+   * the position encodings the client supports, null if it did not say
+   */
+  private static List<String> ClientPositionEncodings(InitializeParams params)
+  {
+    return Optional
+      .ofNullable(params.getCapabilities())
+      .map(capabilities -> capabilities.getGeneral())
+      .map(general -> general.getPositionEncodings())
+      .orElse(null);
+  }
+
+  /**
+   * the workspace folders, or the root uri for clients not supporting workspace folders
+   */
+  @SuppressWarnings("deprecation")
+  private static List<Path> WorkspaceFolders(InitializeParams params)
+  {
+    var uris = params.getWorkspaceFolders() != null
+      ? params.getWorkspaceFolders().stream().map(f -> f.getUri())
+      : Stream.ofNullable(params.getRootUri());
+    return uris
+      .map(uri -> Path.of(Util.toURI(uri)))
+      .collect(Collectors.toList());
+  }
+
   @Override
   public void cancelProgress(WorkDoneProgressCancelParams params)
   {
@@ -102,6 +141,33 @@ public class FuzionLanguageServer implements LanguageServer
     Context.Logger.Log("[Client] initialized");
     RefetchClientConfig();
     RegisterChangeConfiguration();
+    RegisterWatchedFiles();
+  }
+
+  private void RegisterWatchedFiles()
+  {
+    Concurrency.MainExecutor.submit(() -> {
+      var didChangeWatchedFiles = Config.getClientCapabilities().getWorkspace().getDidChangeWatchedFiles();
+      if (didChangeWatchedFiles == null || !didChangeWatchedFiles.getDynamicRegistration())
+        {
+          Context.Logger.Log("[Workspace] Client does not support dynamic registration of `did change watched files`.");
+          return;
+        }
+      try
+        {
+          var options = new DidChangeWatchedFilesRegistrationOptions(
+            List.of(new FileSystemWatcher(Either.forLeft("**/*.fz"))));
+          Config.languageClient()
+            .registerCapability(new RegistrationParams(
+              List.of(new Registration("0b6a2a3e-7c43-4f64-9f4e-2d7fd6f4f1a5", "workspace/didChangeWatchedFiles", options))))
+            .get(10, TimeUnit.SECONDS);
+          Context.Logger.Log("[Workspace] registered workspace/didChangeWatchedFiles.");
+        }
+      catch (Exception e)
+        {
+          Context.Logger.Error("[Workspace] failed registering workspace/didChangeWatchedFiles.");
+        }
+    });
   }
 
   private void RegisterChangeConfiguration()
@@ -162,16 +228,15 @@ public class FuzionLanguageServer implements LanguageServer
     initializeCodeLens(capabilities);
     initializeSignatureHelp(capabilities);
     initializeSemanticTokens(capabilities);
-    capabilities.setTextDocumentSync(TextDocumentSyncKind.Full);
+    capabilities.setPositionEncoding(Config.getPositionEncoding().kind);
+    capabilities.setTextDocumentSync(TextDocumentSyncKind.Incremental);
     return capabilities;
   }
 
   private void initializeSemanticTokens(ServerCapabilities capabilities)
   {
-    // NYI support delta
-    // NYI support range
     capabilities.setSemanticTokensProvider(
-      new SemanticTokensWithRegistrationOptions(SemanticToken.Legend, new SemanticTokensServerFull(false), false));
+      new SemanticTokensWithRegistrationOptions(SemanticToken.Legend, new SemanticTokensServerFull(true), true));
   }
 
   private void initializeCommandExecutions(ServerCapabilities capabilities)
@@ -28,8 +28,10 @@ package dev.flang.lsp.server;
 
 import java.net.URI;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import org.eclipse.lsp4j.CodeAction;
@@ -62,10 +64,14 @@ import org.eclipse.lsp4j.Range;
 import org.eclipse.lsp4j.ReferenceParams;
 import org.eclipse.lsp4j.RenameParams;
 import org.eclipse.lsp4j.SemanticTokens;
+import org.eclipse.lsp4j.SemanticTokensDelta;
+import org.eclipse.lsp4j.SemanticTokensDeltaParams;
 import org.eclipse.lsp4j.SemanticTokensParams;
+import org.eclipse.lsp4j.SemanticTokensRangeParams;
 import org.eclipse.lsp4j.SignatureHelp;
 import org.eclipse.lsp4j.SignatureHelpParams;
 import org.eclipse.lsp4j.SymbolInformation;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
 import org.eclipse.lsp4j.WorkspaceEdit;
 import org.eclipse.lsp4j.jsonrpc.messages.Either;
 import org.eclipse.lsp4j.jsonrpc.messages.Either3;
@@ -87,8 +93,12 @@ import dev.flang.lsp.server.feature.SignatureHelper;
 import dev.flang.lsp.server.util.Computation;
 import dev.flang.lsp.server.util.LSP4jUtils;
 import dev.flang.shared.Debouncer;
+import dev.flang.shared.FeatureIndex;
+import dev.flang.shared.ParsePipeline;
+import dev.flang.shared.ParserTool;
 import dev.flang.shared.SourceText;
 import dev.flang.shared.Util;
+import dev.flang.shared.Workspace;
 
 public class FuzionTextDocumentService implements TextDocumentService
 {
@@ -101,14 +111,15 @@ public class FuzionTextDocumentService implements TextDocumentService
     var uri = Util.toURI(textDocument.getUri());
     var text = textDocument.getText();
 
-    SourceText.setText(uri, text);
-    afterSetText(uri);
+    SourceText.setText(uri, text, textDocument.getVersion());
+    afterSetText(uri, textDocument.getVersion());
   }
 
   final Debouncer debouncer = new Debouncer();
 
-  private void afterSetText(URI uri)
+  private void afterSetText(URI uri, int version)
   {
+    ParsePipeline.Schedule(uri, version);
     debouncer.debounce(uri, new Runnable() {
       @Override
       public void run()
@@ -122,17 +133,32 @@ public class FuzionTextDocumentService implements TextDocumentService
   public void didChange(DidChangeTextDocumentParams params)
   {
     var uri = LSP4jUtils.getUri(params.getTextDocument());
-    var text = SyncKindFull(params);
-    SourceText.setText(uri, text);
-    afterSetText(uri);
-
+    var version = params.getTextDocument().getVersion();
+    // changes have to be applied in the order they were sent
+    params
+      .getContentChanges()
+      .forEach(change -> SyncKindIncremental(uri, version, change));
+    afterSetText(uri, version);
   }
 
-  private String SyncKindFull(DidChangeTextDocumentParams params)
+  /**
+   * apply a change to the text of uri.
+   * A change without range replaces the whole text.
+   */
+  private void SyncKindIncremental(URI uri, int version, TextDocumentContentChangeEvent change)
   {
-    var contentChanges = params.getContentChanges();
-    var text = contentChanges.get(0).getText();
-    return text;
+    var range = change.getRange();
+    if (range == null)
+      {
+        SourceText.setText(uri, change.getText(), version);
+      }
+    else
+      {
+        SourceText.applyEdit(uri, version,
+          range.getStart().getLine(), range.getStart().getCharacter(),
+          range.getEnd().getLine(), range.getEnd().getCharacter(),
+          change.getText());
+      }
   }
 
 
@@ -147,7 +173,10 @@ public class FuzionTextDocumentService implements TextDocumentService
   @Override
   public void didSave(DidSaveTextDocumentParams params)
   {
-
+    var uri = Util.toURI(params.getTextDocument().getUri());
+    Workspace.Invalidate(uri);
+    // after a restart the saved text is read from disk
+    FeatureIndex.Persist(uri);
   }
 
   @Override
@@ -165,7 +194,7 @@ public class FuzionTextDocumentService implements TextDocumentService
   @Override
   public CompletableFuture<Hover> hover(HoverParams params)
   {
-    return Computation.CancellableComputation(() -> Hovering.getHover(params), "hover", 5000);
+    return Computation.CancellableComputation(Served("hover", () -> Hovering.getHover(params)), "hover", 5000);
   }
 
   @Override
@@ -210,8 +239,8 @@ public class FuzionTextDocumentService implements TextDocumentService
   @Override
   public CompletableFuture<List<Either<SymbolInformation, DocumentSymbol>>> documentSymbol(DocumentSymbolParams params)
   {
-    return Computation.CancellableComputation(() -> DocumentSymbols.getDocumentSymbols(params), "document symbol",
-      5000);
+    return Computation.CancellableComputation(
+      Served("document_symbol", () -> DocumentSymbols.getDocumentSymbols(params)), "document symbol", 5000);
   }
 
   /* NYI
@@ -237,8 +266,31 @@ public class FuzionTextDocumentService implements TextDocumentService
   @Override
   public CompletableFuture<SemanticTokens> semanticTokensFull(SemanticTokensParams params)
   {
-    return Computation.CancellableComputation(() -> SemanticToken.getSemanticTokens(params), "semantic tokens full",
-      5000);
+    return Computation.CancellableComputation(
+      Served("semantic_tokens", () -> SemanticToken.getSemanticTokens(params)), "semantic tokens full", 5000);
+  }
+
+  @Override
+  public CompletableFuture<Either<SemanticTokens, SemanticTokensDelta>> semanticTokensFullDelta(
+    SemanticTokensDeltaParams params)
+  {
+    return Computation.CancellableComputation(
+      Served("semantic_tokens", () -> SemanticToken.getSemanticTokensDelta(params)), "semantic tokens delta", 5000);
+  }
+
+  @Override
+  public CompletableFuture<SemanticTokens> semanticTokensRange(SemanticTokensRangeParams params)
+  {
+    return Computation.CancellableComputation(
+      Served("semantic_tokens", () -> SemanticToken.getSemanticTokensRange(params)), "semantic tokens range", 5000);
+  }
+
+  /**
+   * run request with the serve policy configured for requestType
+   */
+  private static <T> Callable<T> Served(String requestType, Supplier<T> request)
+  {
+    return () -> ParserTool.Serve(Config.ServePolicy(requestType), request);
   }
 
 }
@@ -35,6 +35,8 @@ import org.eclipse.lsp4j.services.WorkspaceService;
 
 import dev.flang.lsp.server.feature.Commands;
 import dev.flang.shared.Context;
+import dev.flang.shared.Util;
+import dev.flang.shared.Workspace;
 
 public class FuzionWorkspaceService implements WorkspaceService
 {
@@ -49,7 +51,9 @@ public class FuzionWorkspaceService implements WorkspaceService
   @Override
   public void didChangeWatchedFiles(DidChangeWatchedFilesParams params)
   {
-    // TODO Auto-generated method stub
+    params
+      .getChanges()
+      .forEach(change -> Workspace.Invalidate(Util.toURI(change.getUri())));
   }
 
   @Override
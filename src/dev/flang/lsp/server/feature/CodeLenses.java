@@ -63,10 +63,10 @@ public class CodeLenses
   {
     return QueryAST.SelfAndDescendants(uri)
       .filter(f -> !(f.isField() || FeatureTool.IsArgument(f)))
-      .map(f -> {
+      .flatMap(f -> {
         var command =
           Commands.Create(Commands.callGraph, uri, List.of(FeatureTool.UniqueIdentifier(f)));
-        return new CodeLens(Bridge.ToRange(f), command, null);
+        return Bridge.ToRange(f).map(range -> new CodeLens(range, command, null)).stream();
       });
   }
 
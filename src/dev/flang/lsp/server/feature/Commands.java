@@ -133,7 +133,7 @@ public enum Commands
           || (x.pos().line() == (matchPos.getLine() + 1) && x.pos().column() <= (matchPos.getCharacter() + 1)))
         .sorted(HasSourcePositionTool.CompareBySourcePosition.reversed())
         .findFirst()
-        .map(m -> {
+        .flatMap(m -> {
           // NYI support indent different from two spaces
           var indent = IntStream.range(0, m.pos().column() + 1).mapToObj(x -> " ").collect(Collectors.joining());
 
@@ -146,13 +146,15 @@ public enum Commands
               .map(t -> indent + CaseConverter.ToSnakeCase(TypeTool.baseName(t)) + " " + TypeTool.Label(t) + " =>")
               .collect(Collectors.joining(System.lineSeparator()));
 
-          var endOfSubPos = Bridge.ToPosition(ExprTool.EndOfExpr(m.subject()));
-
-          var edit = new WorkspaceEdit(Map.of(
-            uri,
-            Stream.of(new TextEdit(new Range(endOfSubPos, endOfSubPos), text)).toList()));
-          Config.languageClient().applyEdit(new ApplyWorkspaceEditParams(edit));
-          return edit;
+          return Bridge
+            .ToPosition(ExprTool.EndOfExpr(m.subject()))
+            .map(endOfSubPos -> {
+              var edit = new WorkspaceEdit(Map.of(
+                uri,
+                Stream.of(new TextEdit(new Range(endOfSubPos, endOfSubPos), text)).toList()));
+              Config.languageClient().applyEdit(new ApplyWorkspaceEditParams(edit));
+              return edit;
+            });
         })
         .orElse(null);
     }, "codeActionGenerateMatchCases", 1000);
@@ -211,9 +213,9 @@ public enum Commands
 
   private static void CallGraph(String arg0, String arg1)
   {
-    // NYI go to correct feature via more direct way
-    var feature = FeatureTool.SelfAndDescendants(ParserTool.Universe(Util.toURI(arg0)))
-      .filter(f -> FeatureTool.UniqueIdentifier(f).equals(arg1))
+    var feature = ParserTool
+      .Symbols(Util.toURI(arg0))
+      .WithUniqueIdentifier(arg1)
       .findFirst()
       .get();
     var callGraph = FeatureTool.CallGraph(feature);
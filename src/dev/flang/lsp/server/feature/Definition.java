@@ -26,7 +26,9 @@ Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
 
 package dev.flang.lsp.server.feature;
 
+import java.net.URI;
 import java.util.List;
+import java.util.Optional;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
 
@@ -37,7 +39,12 @@ import org.eclipse.lsp4j.jsonrpc.messages.Either;
 
 import dev.flang.ast.AbstractFeature;
 import dev.flang.lsp.server.util.Bridge;
+import dev.flang.lsp.server.util.LSP4jUtils;
+import dev.flang.shared.FeatureIndex;
+import dev.flang.shared.ParserTool;
 import dev.flang.shared.QueryAST;
+import dev.flang.shared.Util;
+import dev.flang.util.SourcePosition;
 
 /**
  * tries to provide the definition of a call
@@ -48,6 +55,16 @@ public class Definition
   public static Either<List<? extends Location>, List<? extends LocationLink>> getDefinitionLocation(
     DefinitionParams params)
   {
+    var uri = LSP4jUtils.getUri(params);
+    if (!ParserTool.IsParsed(uri))
+      {
+        // not parsed yet, answer from index if possible
+        var fromIndex = FeatureIndex.Of(uri).flatMap(index -> getDefinition(uri, index, Bridge.ToSourcePosition(params)));
+        if (fromIndex.isPresent())
+          {
+            return fromIndex.get();
+          }
+      }
 
     var feature = QueryAST.FeatureAt(Bridge.ToSourcePosition(params));
     if (feature.isEmpty())
@@ -60,13 +77,27 @@ public class Definition
     return getDefinition(redefAbstractAndSelf.stream().collect(Collectors.toList()));
   }
 
+  private static Optional<Either<List<? extends Location>, List<? extends LocationLink>>> getDefinition(URI uri,
+    FeatureIndex index, SourcePosition pos)
+  {
+    return index
+      .CallsAt(pos.line(), pos.column())
+      .map(c -> new Location(c.targetUri(), Bridge.ToRange(Util.toURI(c.targetUri()), c.target())))
+      .findFirst()
+      .or(() -> index
+        .FeaturesAt(pos.line(), pos.column())
+        .map(f -> new Location(uri.toString(), Bridge.ToRange(uri, f.range())))
+        .findFirst())
+      .map(location -> Either.forLeft(List.of(location)));
+  }
+
   private static Either<List<? extends Location>, List<? extends LocationLink>> getDefinition(List<AbstractFeature> fl)
   {
     return Either
       .forLeft(
         fl
           .stream()
-          .map(f -> Bridge.ToLocation(f))
+          .flatMap(f -> Bridge.ToLocation(f).stream())
           .collect(Collectors.toList()));
   }
 
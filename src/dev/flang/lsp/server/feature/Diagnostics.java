@@ -82,11 +82,13 @@ public enum Diagnostics
     var errorDiagnostics =
       ParserTool.Errors(uri)
         .filter(error -> ParserTool.getUri(error.pos).equals(uri))
-        .map((error) -> {
+        .flatMap((error) -> {
             var message = error.msg + System.lineSeparator() + error.detail;
-            return Create(Bridge.ToRange(error.pos), message,
-              DiagnosticSeverity.Error,
-              errors);
+            return Bridge.ToRange(error.pos)
+              .map(range -> Create(range, message,
+                DiagnosticSeverity.Error,
+                errors))
+              .stream();
           });
     return errorDiagnostics;
   }
@@ -96,10 +98,12 @@ public enum Diagnostics
     var warningDiagnostics =
       ParserTool.Warnings(uri)
         .filter(warning -> ParserTool.getUri(warning.pos).equals(uri))
-        .map((warning) -> {
+        .flatMap((warning) -> {
             var message = warning.msg + System.lineSeparator() + warning.detail;
-            return Create(Bridge.ToRange(warning.pos), message,
-              DiagnosticSeverity.Warning, warnings);
+            return Bridge.ToRange(warning.pos)
+              .map(range -> Create(range, message,
+                DiagnosticSeverity.Warning, warnings))
+              .stream();
           });
     return warningDiagnostics;
   }
@@ -120,10 +124,12 @@ public enum Diagnostics
             .anyMatch(str -> !str.isEmpty()
               && str.substring(1).codePoints().anyMatch(c -> Character.isUpperCase(c)));
       })
-      .map(f -> {
-        return Create(Bridge.ToRangeBaseName(f),
-          "use Snake_Pascal_Case for refs, check: https://flang.dev/design/identifiers",
-          DiagnosticSeverity.Information, nameingRefs);
+      .flatMap(f -> {
+        return Bridge.ToRangeBaseName(f)
+          .map(range -> Create(range,
+            "use Snake_Pascal_Case for refs, check: https://flang.dev/design/identifiers",
+            DiagnosticSeverity.Information, nameingRefs))
+          .stream();
       });
   }
 
@@ -138,10 +144,12 @@ public enum Diagnostics
         // any uppercase
         basename.codePoints().anyMatch(c -> Character.isUpperCase(c));
       })
-      .map(f -> {
-        return Create(Bridge.ToRangeBaseName(f),
-          "use snake_case for features and value types, check: https://flang.dev/design/identifiers",
-          DiagnosticSeverity.Information, nameingFeatures);
+      .flatMap(f -> {
+        return Bridge.ToRangeBaseName(f)
+          .map(range -> Create(range,
+            "use snake_case for features and value types, check: https://flang.dev/design/identifiers",
+            DiagnosticSeverity.Information, nameingFeatures))
+          .stream();
       });
     return snakeCase;
   }
@@ -154,10 +162,12 @@ public enum Diagnostics
         var basename = f.featureName().baseName();
         return basename.codePoints().anyMatch(c -> Character.isLowerCase(c));
       })
-      .map(f -> {
-        return Create(Bridge.ToRangeBaseName(f),
-          "use UPPERCASE for type parameters, check: https://flang.dev/design/identifiers",
-          DiagnosticSeverity.Information, Diagnostics.nameingTypeParams);
+      .flatMap(f -> {
+        return Bridge.ToRangeBaseName(f)
+          .map(range -> Create(range,
+            "use UPPERCASE for type parameters, check: https://flang.dev/design/identifiers",
+            DiagnosticSeverity.Information, Diagnostics.nameingTypeParams))
+          .stream();
       });
     return uppercase;
   }
@@ -55,12 +55,12 @@ public class DocumentHighlights
           // the feature itself
           Stream.of(f)
             .filter(HasSourcePositionTool.IsItemInFile(LSP4jUtils.getUri(params)))
-            .map(af -> Bridge.ToHighlight(af)),
+            .flatMap(af -> Bridge.ToHighlight(af).stream()),
           // the calls to the feature
           FeatureTool.CallsTo(f)
             .map(entry -> entry.getKey())
             .filter(HasSourcePositionTool.IsItemInFile(LSP4jUtils.getUri(params)))
-            .map(c -> Bridge.ToHighlight(c)))
+            .flatMap(c -> Bridge.ToHighlight(c).stream()))
           .collect(Collectors.toList());
       })
       .orElse(List.of());
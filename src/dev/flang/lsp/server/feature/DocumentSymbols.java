@@ -26,7 +26,10 @@ Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
 
 package dev.flang.lsp.server.feature;
 
+import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.eclipse.lsp4j.DocumentSymbol;
@@ -37,28 +40,66 @@ import org.eclipse.lsp4j.jsonrpc.messages.Either;
 import dev.flang.ast.AbstractFeature;
 import dev.flang.lsp.server.util.Bridge;
 import dev.flang.lsp.server.util.LSP4jUtils;
+import dev.flang.shared.FeatureIndex;
 import dev.flang.shared.ParserTool;
 
 public class DocumentSymbols
 {
   public static List<Either<SymbolInformation, DocumentSymbol>> getDocumentSymbols(DocumentSymbolParams params)
   {
-    return ParserTool.TopLevelFeatures(LSP4jUtils.getUri(params.getTextDocument()))
-      .map(f -> DocumentSymbols.DocumentSymbolTree(f))
+    var uri = LSP4jUtils.getUri(params.getTextDocument());
+    if (!ParserTool.IsParsed(uri))
+      {
+        // not parsed yet, answer from index if possible
+        var fromIndex = FeatureIndex.Of(uri).map(index -> DocumentSymbols(uri, index));
+        if (fromIndex.isPresent())
+          {
+            return fromIndex.get();
+          }
+      }
+    return ParserTool.TopLevelFeatures(uri)
+      .flatMap(f -> DocumentSymbols.DocumentSymbolTree(f).stream())
       .<Either<SymbolInformation, DocumentSymbol>>map(x -> Either.forRight(x))
       .collect(Collectors.toList());
   }
 
-  public static DocumentSymbol DocumentSymbolTree(AbstractFeature feature)
+  private static List<Either<SymbolInformation, DocumentSymbol>> DocumentSymbols(URI uri, FeatureIndex index)
   {
-    var documentSymbol = Bridge.ToDocumentSymbol(feature);
-    var children = ParserTool.DeclaredFeatures(feature)
-      .map(f -> {
-        return DocumentSymbolTree(f);
-      })
+    var symbols = index
+      .features()
+      .stream()
+      .map(f -> new DocumentSymbol(f.label(), Bridge.SymbolKind(f.kind()), Bridge.ToRange(uri, f.range()),
+        Bridge.ToRange(uri, f.range()), null, new ArrayList<>()))
       .collect(Collectors.toList());
-    documentSymbol.setChildren(children);
-    return documentSymbol;
+    var result = new ArrayList<Either<SymbolInformation, DocumentSymbol>>();
+    for (int i = 0; i < symbols.size(); i++)
+      {
+        var outer = index.features().get(i).outer();
+        if (outer == -1)
+          {
+            result.add(Either.forRight(symbols.get(i)));
+          }
+        else
+          {
+            symbols.get(outer).getChildren().add(symbols.get(i));
+          }
+      }
+    return result;
+  }
+
+  /**
+   * the symbol of feature and its declared features, empty if the range of
+   * feature can not be mapped to the current text of its document, see Bridge.
+   */
+  public static Optional<DocumentSymbol> DocumentSymbolTree(AbstractFeature feature)
+  {
+    return Bridge.ToDocumentSymbol(feature).map(documentSymbol -> {
+      var children = ParserTool.DeclaredFeatures(feature)
+        .flatMap(f -> DocumentSymbolTree(f).stream())
+        .collect(Collectors.toList());
+      documentSymbol.setChildren(children);
+      return documentSymbol;
+    });
   }
 
 }
@@ -26,6 +26,8 @@ Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
 
 package dev.flang.lsp.server.feature;
 
+import java.util.Optional;
+
 import org.eclipse.lsp4j.Hover;
 import org.eclipse.lsp4j.HoverParams;
 import org.eclipse.lsp4j.MarkupContent;
@@ -33,9 +35,12 @@ import org.eclipse.lsp4j.MarkupKind;
 
 import dev.flang.lsp.server.util.Bridge;
 import dev.flang.lsp.server.util.LSP4jUtils;
+import dev.flang.shared.FeatureIndex;
 import dev.flang.shared.FeatureTool;
 import dev.flang.shared.LexerTool;
+import dev.flang.shared.ParserTool;
 import dev.flang.shared.QueryAST;
+import dev.flang.util.SourcePosition;
 
 /**
  * on hover returns signature of call
@@ -49,18 +54,26 @@ public class Hovering
     var pos = Bridge.ToSourcePosition(params);
     return LexerTool.IdentTokenAt(pos)
       .flatMap(identToken -> {
-        var range = LSP4jUtils.Range(identToken);
-        return QueryAST
-          .FeatureAt(pos)
-          .map(f -> {
-            var hoverInfo = FeatureTool.CommentOfInMarkdown(f) + System.lineSeparator()
-              + System.lineSeparator()
-              + FeatureTool.Label(f, true);
-            var markupContent = new MarkupContent(MarkupKind.MARKDOWN, hoverInfo.trim());
-            return new Hover(markupContent, range);
-          });
+        var uri = LSP4jUtils.getUri(params);
+        // not parsed yet, answer from index if possible
+        var fromIndex = ParserTool.IsParsed(uri)
+          ? Optional.<String>empty()
+          : FeatureIndex.Of(uri).flatMap(index -> HoverText(index, pos));
+        return LSP4jUtils.Range(identToken).flatMap(range -> fromIndex
+          // may be answered from an older parse, see ParserTool.Serve
+          .or(() -> ParserTool.ToServed(pos).flatMap(QueryAST::FeatureAt).map(f -> FeatureTool.HoverText(f)))
+          .map(text -> new Hover(new MarkupContent(MarkupKind.MARKDOWN, text), range)));
       })
       .orElse(null);
   }
 
+  private static Optional<String> HoverText(FeatureIndex index, SourcePosition pos)
+  {
+    return index
+      .CallsAt(pos.line(), pos.column())
+      .map(c -> c.hover())
+      .findFirst()
+      .or(() -> index.FeaturesAt(pos.line(), pos.column()).map(f -> f.hover()).findFirst());
+  }
+
 }
@@ -104,14 +104,17 @@ public class InlayHints extends ANY
                 .equals(c.calledFeature().valueArguments().get(idx).featureName().baseName())))
               // for array initialization via [] syntax, don't show inlay hint
               .filter(idx -> !c.calledFeature().valueArguments().get(idx).qualifiedName().equals("array.internal_array"))
-              .mapToObj(idx -> {
-                var inlayHint = new InlayHint(Bridge.ToPosition(CallTool.StartOfExpr(c.actuals().get(idx))),
-                  Either.forLeft(c.calledFeature().valueArguments().get(idx).featureName().baseName() + ":"));
-                inlayHint.setKind(InlayHintKind.Parameter);
-                inlayHint.setPaddingLeft(true);
-                inlayHint.setPaddingRight(true);
-                return inlayHint;
-              });
+              .mapToObj(idx -> Bridge
+                .ToPosition(CallTool.StartOfExpr(c.actuals().get(idx)))
+                .map(position -> {
+                  var inlayHint = new InlayHint(position,
+                    Either.forLeft(c.calledFeature().valueArguments().get(idx).featureName().baseName() + ":"));
+                  inlayHint.setKind(InlayHintKind.Parameter);
+                  inlayHint.setPaddingLeft(true);
+                  inlayHint.setPaddingRight(true);
+                  return inlayHint;
+                }))
+              .flatMap(Optional::stream);
           }
         // NYI when is actuals count != calledFeature valueArgs count?
         else
@@ -210,13 +213,15 @@ public class InlayHints extends ANY
       .TokensFrom(af.pos())
       .takeWhile(x -> AllowedTokensBeforeOp.contains(x.token()))
       .dropWhile(x -> !(x.text().equals("=>") || x.text().equals(":=")))
-      .map(x -> Bridge.ToPosition(x.start()))
-      .findFirst();
+      .findFirst()
+      .flatMap(x -> Bridge.ToPosition(x.start()));
   }
 
   private static boolean IsInRange(Range range, SourcePosition pos)
   {
-    var p = Bridge.ToPosition(pos);
-    return range.getStart().getLine() <= p.getLine() && range.getEnd().getLine() >= p.getLine();
+    return Bridge
+      .ToPosition(pos)
+      .map(p -> range.getStart().getLine() <= p.getLine() && range.getEnd().getLine() >= p.getLine())
+      .orElse(false);
   }
 }
@@ -50,8 +50,8 @@ public class References
       {
         return List.of();
       }
-    return FeatureTool.CallsTo(feature.get())
-      .map(entry -> Bridge.ToLocation(entry.getKey()))
+    return FeatureTool.CallsInWorkspaceTo(feature.get())
+      .flatMap(entry -> Bridge.ToLocation(entry.getKey()).stream())
       .collect(Collectors.toList());
   }
 
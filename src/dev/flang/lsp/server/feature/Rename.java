@@ -51,7 +51,6 @@ import dev.flang.shared.LexerTool;
 import dev.flang.shared.ParserTool;
 import dev.flang.shared.QueryAST;
 import dev.flang.shared.SourcePositionTool;
-import dev.flang.shared.TypeTool;
 import dev.flang.shared.Util;
 import dev.flang.util.ANY;
 import dev.flang.util.SourcePosition;
@@ -97,10 +96,10 @@ public class Rename extends ANY
     Stream<SourcePosition> renamePositions = getRenamePositions(params, feature.get());
 
     var changes = renamePositions
-      .map(start -> {
+      .flatMap(start -> {
         var end =
           SourcePositionTool.ByLineColumn(start._sourceFile, start.line(), start.column() + LengthOfFeatureIdentifier(feature.get()));
-        return Bridge.ToLocation(start, end);
+        return Bridge.ToLocation(start, end).stream();
       })
       .map(location -> new SimpleEntry<String, TextEdit>(location.getUri(),
         new TextEdit(location.getRange(), newName)))
@@ -121,7 +120,7 @@ public class Rename extends ANY
     AbstractFeature featureToRename)
   {
     var callsSourcePositions = FeatureTool
-      .CallsTo(featureToRename)
+      .CallsInWorkspaceTo(featureToRename)
       .map(entry -> entry.getKey().pos());
     var pos = FeatureTool.BareNamePosition(featureToRename);
 
@@ -166,14 +165,12 @@ public class Rename extends ANY
       });
 
 
-    var choiceGenerics = ASTWalker
-      .Features(LSP4jUtils.getUri(params))
-      .filter(f -> f.resultType().isChoice())
-      .filter(f -> {
-        return f.resultType().choiceGenerics().stream().anyMatch(t -> {
-          return TypeTool.baseName(t).equals(featureToRename.featureName().baseName());
-        });
-      })
+    var choiceGenerics = ParserTool
+      .Choices(LSP4jUtils.getUri(params))
+      .UsesOf(featureToRename.featureName().baseName())
+      .filter(use -> use.isResultType())
+      .map(use -> use.feature())
+      .distinct()
       .map(f -> PositionOfChoiceGeneric(featureToRename.featureName().baseName(), f));
 
     return Util.ConcatStreams(
@@ -216,8 +213,8 @@ public class Rename extends ANY
       }
 
     return LexerTool.IdentOrOperatorTokenAt(pos)
-      .map(token -> {
-        return new PrepareRenameResult(LSP4jUtils.Range(token), token.text());
+      .flatMap(token -> {
+        return LSP4jUtils.Range(token).map(range -> new PrepareRenameResult(range, token.text()));
       })
       .orElse(new PrepareRenameResult());
   }
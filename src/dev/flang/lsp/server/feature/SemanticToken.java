@@ -27,15 +27,23 @@ Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
 package dev.flang.lsp.server.feature;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import org.eclipse.lsp4j.Position;
 import org.eclipse.lsp4j.SemanticTokens;
+import org.eclipse.lsp4j.SemanticTokensDelta;
+import org.eclipse.lsp4j.SemanticTokensDeltaParams;
+import org.eclipse.lsp4j.SemanticTokensEdit;
 import org.eclipse.lsp4j.SemanticTokensLegend;
 import org.eclipse.lsp4j.SemanticTokensParams;
+import org.eclipse.lsp4j.SemanticTokensRangeParams;
+import org.eclipse.lsp4j.TextDocumentIdentifier;
 import org.eclipse.lsp4j.TextDocumentPositionParams;
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
 
 import dev.flang.lsp.server.enums.TokenModifier;
 import dev.flang.lsp.server.enums.TokenType;
@@ -54,17 +62,90 @@ public class SemanticToken extends ANY
   public static final SemanticTokensLegend Legend =
     new SemanticTokensLegend(TokenType.asList, TokenModifier.asList);
 
+  /**
+   * the number of documents whose last result is kept for delta requests
+   */
+  private static final int MAX_RESULTS = 32;
+
+  private static final AtomicLong resultIds = new AtomicLong();
+
+  /**
+   * the last full result sent for each document uri
+   */
+  private static final Map<String, SemanticTokens> lastResults = Util.ThreadSafeLRUMap(MAX_RESULTS, null);
+
   public static SemanticTokens getSemanticTokens(SemanticTokensParams params)
   {
-    return new SemanticTokens(SemanticTokenData(LexerTokens(params)));
+    var result = new SemanticTokens(Long.toString(resultIds.incrementAndGet()),
+      SemanticTokenData(LexerTokens(params.getTextDocument(), 0, Integer.MAX_VALUE)));
+    lastResults.put(params.getTextDocument().getUri(), result);
+    return result;
+  }
+
+  /**
+   * the edits from the result with the previous result id to the current
+   * tokens, or all tokens if that result is no longer known.
+   */
+  public static Either<SemanticTokens, SemanticTokensDelta> getSemanticTokensDelta(SemanticTokensDeltaParams params)
+  {
+    var previous = lastResults.get(params.getTextDocument().getUri());
+    var current = getSemanticTokens(new SemanticTokensParams(params.getTextDocument()));
+    if (previous == null || !previous.getResultId().equals(params.getPreviousResultId()))
+      {
+        return Either.forLeft(current);
+      }
+    return Either.forRight(
+      new SemanticTokensDelta(Edits(previous.getData(), current.getData()), current.getResultId()));
   }
 
-  private static List<TokenInfo> LexerTokens(SemanticTokensParams params)
+  /**
+   * the tokens on the lines of the range only
+   */
+  public static SemanticTokens getSemanticTokensRange(SemanticTokensRangeParams params)
+  {
+    var start = params.getRange().getStart();
+    var end = params.getRange().getEnd();
+    // the end of the range is exclusive
+    var lastLine = end.getCharacter() == 0 && end.getLine() > start.getLine() ? end.getLine() - 1 : end.getLine();
+    return new SemanticTokens(SemanticTokenData(LexerTokens(params.getTextDocument(), start.getLine(), lastLine)));
+  }
+
+  /**
+   * a single edit replacing what lies between the common prefix and suffix
+   * of previous and current, none if they are the same.
+   */
+  private static List<SemanticTokensEdit> Edits(List<Integer> previous, List<Integer> current)
+  {
+    var max = Math.min(previous.size(), current.size());
+    var prefix = 0;
+    while (prefix < max && previous.get(prefix).equals(current.get(prefix)))
+      {
+        prefix++;
+      }
+    var suffix = 0;
+    while (suffix < max - prefix
+      && previous.get(previous.size() - 1 - suffix).equals(current.get(current.size() - 1 - suffix)))
+      {
+        suffix++;
+      }
+    if (prefix == previous.size() && prefix == current.size())
+      {
+        return List.of();
+      }
+    return List.of(new SemanticTokensEdit(prefix, previous.size() - prefix - suffix,
+      List.copyOf(current.subList(prefix, current.size() - suffix))));
+  }
+
+  /**
+   * the lexer tokens on the zero based lines from firstLine to lastLine
+   */
+  private static List<TokenInfo> LexerTokens(TextDocumentIdentifier textDocument, int firstLine, int lastLine)
   {
     return LexerTool
       .TokensFrom(
         Bridge.ToSourcePosition(
-          new TextDocumentPositionParams(params.getTextDocument(), new Position(0, 0))))
+          new TextDocumentPositionParams(textDocument, new Position(firstLine, 0))))
+      .takeWhile(t -> t.start().line() - 1 <= lastLine)
       // - map all special strings to normal strings plus operator(s)
       .flatMap(t -> {
         switch (t.token())
@@ -132,6 +213,8 @@ public class SemanticToken extends ANY
           ? Stream.of(t)
           : splitToken(t);
       })
+      // parts of tokens that start before firstLine or end after lastLine
+      .filter(t -> firstLine <= t.start().line() - 1 && t.start().line() - 1 <= lastLine)
       .collect(Collectors.toList());
   }
 
@@ -28,6 +28,7 @@ package dev.flang.lsp.server.util;
 
 import java.net.URI;
 import java.nio.file.Path;
+import java.util.Optional;
 
 import org.eclipse.lsp4j.DocumentHighlight;
 import org.eclipse.lsp4j.DocumentHighlightKind;
@@ -40,134 +41,176 @@ import org.eclipse.lsp4j.TextDocumentPositionParams;
 
 import dev.flang.ast.AbstractCall;
 import dev.flang.ast.AbstractFeature;
+import dev.flang.shared.Context;
+import dev.flang.shared.FeatureKind;
 import dev.flang.shared.FeatureTool;
+import dev.flang.shared.LineIndex;
 import dev.flang.shared.ParserTool;
-import dev.flang.shared.SourcePositionTool;
 import dev.flang.shared.SourceText;
 import dev.flang.shared.Util;
+import dev.flang.shared.records.IndexedRange;
 import dev.flang.util.ANY;
 import dev.flang.util.SourceFile;
 import dev.flang.util.SourcePosition;
 
 /**
  * provides bridge utility functions converting between lsp4j <-> fuzion
+ *
+ * Positions of a parse are converted to positions in the current text of
+ * their document. The conversions are empty if a line they need was edited
+ * since the parse, callers drop such results.
  */
 public class Bridge extends ANY
 {
 
-  public static Position ToPosition(SourcePosition sourcePosition)
+  /**
+   * the position of sourcePosition in the current text of its document,
+   * empty if its line was edited since it was parsed.
+   */
+  public static Optional<Position> ToPosition(SourcePosition sourcePosition)
   {
     if (PRECONDITIONS)
       require(!sourcePosition.isBuiltIn());
-    return new Position(sourcePosition.line() - 1, sourcePosition.column() - 1);
+    var character = LineIndex
+      .Of(sourcePosition._sourceFile)
+      .Character(sourcePosition.bytePos(), Context.PositionEncoding);
+    return ParserTool
+      .CurrentLine(sourcePosition)
+      .map(line -> new Position(line - 1, character));
+  }
+
+  public static Optional<Range> ToRange(SourcePosition start, SourcePosition end)
+  {
+    return ToPosition(start)
+      .flatMap(startPosition -> ToPosition(end).map(endPosition -> new Range(startPosition, endPosition)));
   }
 
-  public static Location ToLocation(SourcePosition start, SourcePosition end)
+  public static Optional<Location> ToLocation(SourcePosition start, SourcePosition end)
   {
     if (PRECONDITIONS)
       require(!start.isBuiltIn());
-    return new Location(ParserTool.getUri(start).toString(), new Range(ToPosition(start), ToPosition(end)));
+    return ToRange(start, end)
+      .map(range -> new Location(ParserTool.getUri(start).toString(), range));
   }
 
-  public static Range ToRange(AbstractFeature feature)
+  public static Optional<Range> ToRange(AbstractFeature feature)
   {
     if (PRECONDITIONS)
       require(!feature.pos().isBuiltIn());
 
-    return new Range(ToPosition(feature.pos()), ToPosition(ParserTool.endOfFeature(feature)));
+    return ToRange(feature.pos(), ParserTool.endOfFeature(feature));
   }
 
-  public static Range ToRange(SourcePosition pos)
+  public static Optional<Range> ToRange(SourcePosition pos)
   {
-    return new Range(ToPosition(pos), ToPosition(new SourcePosition(pos._sourceFile, pos.byteEndPos())));
+    return ToRange(pos, new SourcePosition(pos._sourceFile, pos.byteEndPos()));
   }
 
-  public static Range ToRangeBaseName(AbstractFeature feature)
+  /**
+   * convert range of an index of the current text of uri
+   */
+  public static Range ToRange(URI uri, IndexedRange range)
   {
-    var bareNamePosition = FeatureTool.BareNamePosition(feature);
-    return new Range(
-      ToPosition(bareNamePosition),
-      ToPosition(SourcePositionTool.ByLineColumn(bareNamePosition._sourceFile,
-        bareNamePosition.line(),
-        bareNamePosition.column() + Util.CharCount(FeatureTool.BareName(feature)))));
+    var index = LineIndex.Of(SourceText.SourceFile(uri));
+    return new Range(ToPosition(index, range.line(), range.column()),
+      ToPosition(index, range.endLine(), range.endColumn()));
   }
 
-  public static DocumentSymbol ToDocumentSymbol(AbstractFeature feature)
+  /**
+   * convert one based line and column counted in code points
+   */
+  private static Position ToPosition(LineIndex index, int line, int column)
   {
-    return new DocumentSymbol(FeatureTool.Label(feature, false), SymbolKind(feature), ToRange(feature), ToRange(feature));
+    var character = line > index.NumLines()
+      ? column - 1
+      : index.Character(index.BytePos(line, column), Context.PositionEncoding);
+    return new Position(line - 1, character);
+  }
+
+  public static Optional<Range> ToRangeBaseName(AbstractFeature feature)
+  {
+    var nameLength = Context.PositionEncoding.Length(FeatureTool.BareName(feature));
+    return ToPosition(FeatureTool.BareNamePosition(feature))
+      .map(start -> new Range(start, new Position(start.getLine(), start.getCharacter() + nameLength)));
+  }
+
+  public static Optional<DocumentSymbol> ToDocumentSymbol(AbstractFeature feature)
+  {
+    return ToRange(feature)
+      .map(range -> new DocumentSymbol(FeatureTool.Label(feature, false), SymbolKind(feature), range, range));
   }
 
   private static SymbolKind SymbolKind(AbstractFeature feature)
   {
-    if (feature.isChoice())
+    return SymbolKind(FeatureKind.Of(feature));
+  }
+
+  public static SymbolKind SymbolKind(FeatureKind kind)
+  {
+    switch (kind)
       {
+      case Choice :
         return SymbolKind.Enum;
-      }
-    if (feature.isBuiltInPrimitive() && "bool".equals(feature.featureName().baseName()))
-      {
+      case Bool :
         return SymbolKind.Boolean;
-      }
-    if (feature.isBuiltInPrimitive())
-      {
+      case Number :
         return SymbolKind.Number;
-      }
-    if (feature.isConstructor() || feature.isIntrinsic())
-      {
+      case Constructor :
         return SymbolKind.Constructor;
-      }
-    if (feature.isField())
-      {
+      case Field :
         return SymbolKind.Constant;
-      }
-    if (feature.isRoutine())
-      {
+      case Routine :
         return SymbolKind.Function;
+      default:
+        return SymbolKind.Class;
       }
-    return SymbolKind.Class;
   }
 
-  public static TextDocumentPositionParams ToTextDocumentPosition(SourcePosition sourcePosition)
+  public static Optional<TextDocumentPositionParams> ToTextDocumentPosition(SourcePosition sourcePosition)
   {
-    return LSP4jUtils.TextDocumentPositionParams(ParserTool.getUri(sourcePosition), ToPosition(sourcePosition));
+    return ToPosition(sourcePosition)
+      .map(position -> LSP4jUtils.TextDocumentPositionParams(ParserTool.getUri(sourcePosition), position));
   }
 
   public static SourcePosition ToSourcePosition(TextDocumentPositionParams params)
   {
-    return SourcePositionTool.ByLineColumn(ToSourceFile(Util.toURI(params.getTextDocument().getUri())),
-      params.getPosition().getLine() + 1, params.getPosition().getCharacter() + 1);
+    var sourceFile = ToSourceFile(Util.toURI(params.getTextDocument().getUri()));
+    var bytePos = LineIndex
+      .Of(sourceFile)
+      .BytePos(params.getPosition().getLine() + 1, params.getPosition().getCharacter(), Context.PositionEncoding);
+    return new SourcePosition(sourceFile, bytePos);
   }
 
-  public static Location ToLocation(AbstractCall call)
+  public static Optional<Location> ToLocation(AbstractCall call)
   {
     if (PRECONDITIONS)
       require(!call.pos().isBuiltIn());
-    return new Location(ParserTool.getUri(call.pos()).toString(),
-      ToRange(call));
+    return ToRange(call)
+      .map(range -> new Location(ParserTool.getUri(call.pos()).toString(), range));
   }
 
-  private static Range ToRange(AbstractCall call)
+  private static Optional<Range> ToRange(AbstractCall call)
   {
-    var start = ToPosition(call.pos());
-    var nameLength = Util.CharCount(FeatureTool.BareName(call.calledFeature()));
-    return new Range(start, new Position(start.getLine(), start.getCharacter() + nameLength));
+    var nameLength = Context.PositionEncoding.Length(FeatureTool.BareName(call.calledFeature()));
+    return ToPosition(call.pos())
+      .map(start -> new Range(start, new Position(start.getLine(), start.getCharacter() + nameLength)));
   }
 
-  public static Location ToLocation(AbstractFeature af)
+  public static Optional<Location> ToLocation(AbstractFeature af)
   {
     if (PRECONDITIONS)
       require(!af.pos().isBuiltIn());
-    return new Location(ParserTool.getUri(af.pos()).toString(),
-      new Range(ToPosition(af.pos()), ToPosition(ParserTool.endOfFeature(af))));
+    return ToLocation(af.pos(), ParserTool.endOfFeature(af));
   }
 
-  public static DocumentHighlight ToHighlight(AbstractCall c)
+  public static Optional<DocumentHighlight> ToHighlight(AbstractCall c)
   {
-    return new DocumentHighlight(ToRange(c), DocumentHighlightKind.Read);
+    return ToRange(c).map(range -> new DocumentHighlight(range, DocumentHighlightKind.Read));
   }
 
-  public static DocumentHighlight ToHighlight(AbstractFeature af)
+  public static Optional<DocumentHighlight> ToHighlight(AbstractFeature af)
   {
-    return new DocumentHighlight(ToRangeBaseName(af), DocumentHighlightKind.Text);
+    return ToRangeBaseName(af).map(range -> new DocumentHighlight(range, DocumentHighlightKind.Text));
   }
 
   /**
@@ -183,6 +226,6 @@ public class Bridge extends ANY
       {
         return SourcePosition.builtIn._sourceFile;
       }
-    return new SourceFile(filePath, SourceText.getText(uri).getBytes());
+    return SourceText.SourceFile(uri);
   }
 }
@@ -27,6 +27,7 @@ Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
 package dev.flang.lsp.server.util;
 
 import java.net.URI;
+import java.util.Optional;
 
 import org.eclipse.lsp4j.Position;
 import org.eclipse.lsp4j.Range;
@@ -79,11 +80,13 @@ public final class LSP4jUtils
     return result;
   }
 
-  public static Range Range(TokenInfo tokenInfo)
+  /**
+   * the range of tokenInfo, empty if it can not be mapped to the current text,
+   * see Bridge.
+   */
+  public static Optional<Range> Range(TokenInfo tokenInfo)
   {
-    var start = Bridge.ToPosition(tokenInfo.start());
-    var end = Bridge.ToPosition(tokenInfo.end());
-    return new Range(start, end);
+    return Bridge.ToRange(tokenInfo.start(), tokenInfo.end());
   }
 
 }
@@ -0,0 +1,260 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class ASTIndex
+ *
+ *---------------------------------------------------------------------*/
+
+package dev.flang.shared;
+
+import java.net.URI;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map.Entry;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import dev.flang.ast.AbstractCall;
+import dev.flang.ast.AbstractFeature;
+import dev.flang.util.ANY;
+import dev.flang.util.HasSourcePosition;
+import dev.flang.util.SourceFile;
+import dev.flang.util.SourcePosition;
+
+/**
+ * the items of ASTWalker.Traverse of one parse of a source text sorted by
+ * position, so that the items at or before a cursor are found by binary
+ * search instead of walking and sorting the whole AST.
+ *
+ * Items are ordered by descending start. Items with the same start keep
+ * the order of the traversal, like a stable sort of the traversal would.
+ */
+public class ASTIndex extends ANY
+{
+
+  /**
+   * the source file the byte offsets of this index refer to,
+   * null if there are no items.
+   */
+  private final SourceFile sourceFile;
+
+  private final HasSourcePosition[] items;
+  private final AbstractFeature[] outers;
+
+  /**
+   * byte offset of the start of items[i], descending
+   */
+  private final int[] starts;
+
+  /**
+   * position of items[i] in the traversal
+   */
+  private final int[] traversalOrder;
+
+  /**
+   * indices of the calls in items ordered by descending end of expression,
+   * computed on first use.
+   */
+  private int[] callsByEnd = null;
+
+  /**
+   * byte offset of the end of the calls in callsByEnd, descending
+   */
+  private int[] callEnds = null;
+
+  private ASTIndex(SourceFile sourceFile, HasSourcePosition[] items, AbstractFeature[] outers, int[] starts,
+    int[] traversalOrder)
+  {
+    this.sourceFile = sourceFile;
+    this.items = items;
+    this.outers = outers;
+    this.starts = starts;
+    this.traversalOrder = traversalOrder;
+  }
+
+  /**
+   * index the items of traversal that are positioned in the source text of uri.
+   */
+  public static ASTIndex Of(URI uri, Stream<Entry<HasSourcePosition, AbstractFeature>> traversal)
+  {
+    var inFile = new IdentityHashMap<SourceFile, Boolean>();
+    var entries = traversal
+      .filter(e -> {
+        var pos = e.getKey().pos();
+        return !pos.isBuiltIn()
+          && inFile.computeIfAbsent(pos._sourceFile, sf -> uri.equals(ParserTool.getUri(pos)));
+      })
+      .toList();
+    if (entries.isEmpty())
+      {
+        return new ASTIndex(null, new HasSourcePosition[0], new AbstractFeature[0], new int[0], new int[0]);
+      }
+    var sourceFile = entries.get(0).getKey().pos()._sourceFile;
+    var lineIndex = LineIndex.Of(sourceFile);
+    var order = IntStream
+      .range(0, entries.size())
+      .boxed()
+      .sorted(Comparator.comparingInt(i -> -ByteOf(sourceFile, lineIndex, entries.get(i).getKey().pos())))
+      .mapToInt(i -> i)
+      .toArray();
+    var items = new HasSourcePosition[order.length];
+    var outers = new AbstractFeature[order.length];
+    var starts = new int[order.length];
+    for (var i = 0; i < order.length; i++)
+      {
+        var entry = entries.get(order[i]);
+        items[i] = entry.getKey();
+        outers[i] = entry.getValue();
+        starts[i] = ByteOf(sourceFile, lineIndex, items[i].pos());
+      }
+    return new ASTIndex(sourceFile, items, outers, starts, order);
+  }
+
+  /**
+   * the byte offset of pos in sourceFile. Positions in other source
+   * files, e.g. of a different parse of the same text, are mapped by
+   * line and column.
+   */
+  private static int ByteOf(SourceFile sourceFile, LineIndex lineIndex, SourcePosition pos)
+  {
+    return pos._sourceFile == sourceFile
+      ? pos.bytePos()
+      : lineIndex.BytePos(pos.line(), pos.column());
+  }
+
+  private int ByteOf(SourcePosition pos)
+  {
+    return ByteOf(sourceFile, LineIndex.Of(sourceFile), pos);
+  }
+
+  public int size()
+  {
+    return items.length;
+  }
+
+  /**
+   * the items starting on the line of pos, by descending start.
+   */
+  public Stream<Entry<HasSourcePosition, AbstractFeature>> OnLine(SourcePosition pos)
+  {
+    if (sourceFile == null)
+      {
+        return Stream.empty();
+      }
+    var lineIndex = LineIndex.Of(sourceFile);
+    var end = pos.line() < lineIndex.NumLines()
+      ? lineIndex.BytePos(pos.line() + 1, 1) - 1
+      : Integer.MAX_VALUE;
+    return Range(end, lineIndex.BytePos(pos.line(), 1));
+  }
+
+  /**
+   * the items starting on the line of pos at or before pos, by descending start.
+   */
+  public Stream<Entry<HasSourcePosition, AbstractFeature>> OnLineAtOrBefore(SourcePosition pos)
+  {
+    if (sourceFile == null)
+      {
+        return Stream.empty();
+      }
+    return Range(ByteOf(pos), LineIndex.Of(sourceFile).BytePos(pos.line(), 1));
+  }
+
+  /**
+   * the items starting at or before from and at or after to,
+   * by descending start.
+   */
+  private Stream<Entry<HasSourcePosition, AbstractFeature>> Range(int from, int to)
+  {
+    var first = FirstAtOrBefore(starts, from);
+    var last = FirstAtOrBefore(starts, to - 1);
+    return IntStream
+      .range(first, last)
+      .mapToObj(i -> new SimpleEntry<HasSourcePosition, AbstractFeature>(items[i], outers[i]));
+  }
+
+  /**
+   * the calls whose expression ends at or before pos,
+   * by descending end, see ExprTool.EndOfExpr.
+   */
+  public Stream<Entry<AbstractCall, AbstractFeature>> CallsEndingAtOrBefore(SourcePosition pos)
+  {
+    if (sourceFile == null)
+      {
+        return Stream.empty();
+      }
+    IndexCallEnds();
+    // calls whose end could not be determined are at the end with end -1
+    return IntStream
+      .range(FirstAtOrBefore(callEnds, ByteOf(pos)), FirstAtOrBefore(callEnds, -1))
+      .mapToObj(i -> new SimpleEntry<AbstractCall, AbstractFeature>((AbstractCall) items[callsByEnd[i]],
+        outers[callsByEnd[i]]));
+  }
+
+  private synchronized void IndexCallEnds()
+  {
+    if (callsByEnd == null)
+      {
+        var lineIndex = LineIndex.Of(sourceFile);
+        var calls = new ArrayList<Integer>();
+        var ends = new int[items.length];
+        for (var i = 0; i < items.length; i++)
+          {
+            if (items[i] instanceof AbstractCall c)
+              {
+                calls.add(i);
+                ends[i] = ErrorHandling.ResultOrDefault(() -> ByteOf(sourceFile, lineIndex, ExprTool.EndOfExpr(c)), -1);
+              }
+          }
+        // ties keep the order of the traversal
+        calls.sort(Comparator.<Integer>comparingInt(i -> -ends[i]).thenComparingInt(i -> traversalOrder[i]));
+        callEnds = calls.stream().mapToInt(i -> ends[i]).toArray();
+        callsByEnd = calls.stream().mapToInt(i -> i).toArray();
+      }
+  }
+
+  /**
+   * the index of the first element of the descending values that is
+   * at or below value, values.length if there is none.
+   */
+  private static int FirstAtOrBefore(int[] values, int value)
+  {
+    var low = 0;
+    var high = values.length;
+    while (low < high)
+      {
+        var mid = (low + high) >>> 1;
+        if (values[mid] <= value)
+          {
+            high = mid;
+          }
+        else
+          {
+            low = mid + 1;
+          }
+      }
+    return low;
+  }
+
+}
@@ -28,13 +28,17 @@ package dev.flang.shared;
 
 import java.net.URI;
 import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.stream.Stream;
 
 import dev.flang.ast.AbstractAssign;
 import dev.flang.ast.AbstractBlock;
 import dev.flang.ast.AbstractCall;
-import dev.flang.ast.AbstractCase;
 import dev.flang.ast.Constant;
 import dev.flang.ast.AbstractCurrent;
 import dev.flang.ast.AbstractFeature;
@@ -54,10 +58,69 @@ import dev.flang.util.SourcePosition;
 /**
  * depth first traversal
  * collects calls, features etc. (=key) as well as their outer features (=value).
+ *
+ * The traversal is iterative, using an explicit stack, and materialized.
+ * The traversal of the top level features of a parse is computed once and
+ * kept in its ParserCacheItem, see Traversal.
+ * The traversal of a whole universe is split by subtree, see FeatureTree.
  */
 public class ASTWalker
 {
 
+  /**
+   * the materialized traversal of some top level features, each of which
+   * is a contiguous slice of entries.
+   */
+  public static final class Traversal
+  {
+    private final List<Entry<HasSourcePosition, AbstractFeature>> entries;
+
+    /**
+     * start and end index in entries of the traversal of each top level feature
+     */
+    private final IdentityHashMap<AbstractFeature, int[]> slices;
+
+    private Traversal(List<AbstractFeature> topLevelFeatures)
+    {
+      var entries = new ArrayList<Entry<HasSourcePosition, AbstractFeature>>();
+      slices = new IdentityHashMap<>();
+      for (var f : topLevelFeatures)
+        {
+          var start = entries.size();
+          Walk(f, true, entries);
+          slices.put(f, new int[] { start, entries.size() });
+        }
+      this.entries = List.copyOf(entries);
+    }
+
+    public Stream<Entry<HasSourcePosition, AbstractFeature>> Entries()
+    {
+      return entries.stream();
+    }
+
+    /**
+     * the traversal of top level feature f, null if f is not one of the
+     * top level features of this traversal.
+     */
+    private List<Entry<HasSourcePosition, AbstractFeature>> Of(AbstractFeature f)
+    {
+      var slice = slices.get(f);
+      return slice == null ? null : entries.subList(slice[0], slice[1]);
+    }
+  }
+
+  /**
+   * what to do with an item on the stack of Walk
+   */
+  private enum Step
+  {
+    Emit, Feature, FeatureAndDeclared, Expression;
+  }
+
+  private record Task(Step step, HasSourcePosition item, AbstractFeature outer)
+  {
+  }
+
   public static Stream<Entry<HasSourcePosition, AbstractFeature>> Traverse(SourcePosition pos)
   {
     return Traverse(SourceText.UriOf(pos));
@@ -65,151 +128,198 @@ public class ASTWalker
 
   public static Stream<Entry<HasSourcePosition, AbstractFeature>> Traverse(URI uri)
   {
-    return ParserTool.TopLevelFeatures(uri)
-      .flatMap(f -> TraverseFeature(f, true));
+    return ParserTool.Traversal(uri).Entries();
+  }
+
+  /**
+   * the traversal of top level features
+   */
+  static Traversal TraversalOf(List<AbstractFeature> topLevelFeatures)
+  {
+    return new Traversal(topLevelFeatures);
   }
 
   public static Stream<Entry<HasSourcePosition, AbstractFeature>> TraverseFeature(AbstractFeature feature,
     boolean descend)
   {
-    // NYI heuristic to abort traverse
-    // if (feature.outer() != null
-    //   && feature.outer().pos()._sourceFile._fileName.startsWith(FuzionConstants.SYMBOLIC_FUZION_HOME.toString()))
-    //   {
-    //     return Stream.empty();
-    //   }
-    return Util.ConcatStreams(
-
-      FeatureTool.IsInternal(feature) ? Stream.empty(): AsStream(feature, feature.outer()),
-
-      feature.arguments()
-        .stream()
-        .flatMap(f -> TraverseFeature(f, false)),
-
-      // feature.isRoutine() sometimes throws because it depends on
-      // statically held Types.resolved.f_choice which may have been cleared
-      // already.
-      // We may remove wrapper ResultOrDefault in the future if this changes.
-      ErrorHandling.ResultOrDefault(() -> feature.isRoutine(), true)
-                                                                     ? TraverseExpression(feature.code(), feature)
-                                                                     : Stream.empty(),
-
-      feature.inherits()
-        .stream()
-        // filter implicit inheritance of Object
-        .filter(x -> x.calledFeature().inherits().size() != 0)
-        .flatMap(x -> TraverseCall(x, feature)),
-
-      feature.contract()._declared_preconditions.stream().flatMap(x -> TraverseExpression(x.cond, feature.outer())),
-      feature.contract()._declared_postconditions.stream().flatMap(x -> TraverseExpression(x.cond, feature.outer())),
-
-      descend
-              ? ParserTool.DeclaredFeatures(feature, true)
-                .flatMap(f -> TraverseFeature(f, descend))
-              : Stream.empty())
-      .distinct();
+    var cached = descend
+      ? ParserTool.CachedTraversal(feature).map(t -> t.Of(feature)).orElse(null)
+      : null;
+    if (cached != null)
+      {
+        return cached.stream();
+      }
+    if (descend && feature.isUniverse())
+      {
+        // removing duplicates across subtrees keeps the first of each
+        // like a single walk does
+        return FeatureTree
+          .Collect(feature, f -> Walked(f, false), f -> ParserTool.DeclaredFeatures(f, true), f -> Walked(f, true))
+          .stream()
+          .distinct();
+      }
+    return Walked(feature, descend).stream();
   }
 
-  private static Stream<Entry<HasSourcePosition, AbstractFeature>> TraverseCase(AbstractCase c, AbstractFeature outer)
+  private static List<Entry<HasSourcePosition, AbstractFeature>> Walked(AbstractFeature feature, boolean descend)
   {
-    return TraverseExpression(c.code(), outer);
+    var result = new ArrayList<Entry<HasSourcePosition, AbstractFeature>>();
+    Walk(feature, descend, result);
+    return result;
   }
 
+  /**
+   * append the distinct items of the traversal of feature to result
+   * in depth first pre-order.
+   */
+  private static void Walk(AbstractFeature feature, boolean descend,
+    List<Entry<HasSourcePosition, AbstractFeature>> result)
+  {
+    var seen = new HashSet<Entry<HasSourcePosition, AbstractFeature>>();
+    var stack = new ArrayDeque<Task>();
+    stack.push(new Task(descend ? Step.FeatureAndDeclared: Step.Feature, feature, feature.outer()));
+    var children = new ArrayList<Task>();
+    while (!stack.isEmpty())
+      {
+        var task = stack.pop();
+        children.clear();
+        switch (task.step())
+          {
+          case Emit :
+            var entry = new SimpleEntry<HasSourcePosition, AbstractFeature>(task.item(), task.outer());
+            if (seen.add(entry))
+              {
+                result.add(entry);
+              }
+            break;
+          case Feature :
+            FeatureChildren((AbstractFeature) task.item(), false, children);
+            break;
+          case FeatureAndDeclared :
+            FeatureChildren((AbstractFeature) task.item(), true, children);
+            break;
+          default:
+            ExpressionChildren((Expr) task.item(), task.outer(), children);
+            break;
+          }
+        // push in reverse so that the children are visited in order
+        for (var i = children.size() - 1; i >= 0; i--)
+          {
+            stack.push(children.get(i));
+          }
+      }
+  }
 
-  private static Stream<Entry<HasSourcePosition, AbstractFeature>> TraverseAssign(AbstractAssign a,
-    AbstractFeature outer)
+  private static void FeatureChildren(AbstractFeature feature, boolean descend, List<Task> children)
   {
-    return Util.ConcatStreams(
+    // NYI heuristic to abort traverse
+    // if (feature.outer() != null
+    //   && feature.outer().pos()._sourceFile._fileName.startsWith(FuzionConstants.SYMBOLIC_FUZION_HOME.toString()))
+    //   {
+    //     return;
+    //   }
+    if (!FeatureTool.IsInternal(feature))
+      {
+        children.add(new Task(Step.Emit, feature, feature.outer()));
+      }
+    feature.arguments().forEach(f -> children.add(new Task(Step.Feature, f, f.outer())));
 
-      AsStream(a, outer),
+    // feature.isRoutine() sometimes throws because it depends on
+    // statically held Types.resolved.f_choice which may have been cleared
+    // already.
+    // We may remove wrapper ResultOrDefault in the future if this changes.
+    if (ErrorHandling.ResultOrDefault(() -> feature.isRoutine(), true))
+      {
+        Expression(feature.code(), feature, children);
+      }
 
-      TraverseExpression(a._value, outer),
-      TraverseExpression(a._target, outer));
-  }
+    feature.inherits()
+      .stream()
+      // filter implicit inheritance of Object
+      .filter(x -> x.calledFeature().inherits().size() != 0)
+      .forEach(x -> Expression(x, feature, children));
 
-  private static Stream<Entry<HasSourcePosition, AbstractFeature>> AsStream(HasSourcePosition item,
-    AbstractFeature outer)
-  {
-    return Stream.of(new SimpleEntry<HasSourcePosition, AbstractFeature>(item, outer));
-  }
+    feature.contract()._declared_preconditions.forEach(x -> Expression(x.cond, feature.outer(), children));
+    feature.contract()._declared_postconditions.forEach(x -> Expression(x.cond, feature.outer(), children));
 
-  private static Stream<Entry<HasSourcePosition, AbstractFeature>> TraverseBlock(AbstractBlock b, AbstractFeature outer)
-  {
-    return b._expressions.stream().flatMap(s -> TraverseExpression(s, outer));
+    if (descend)
+      {
+        ParserTool
+          .DeclaredFeatures(feature, true)
+          .forEach(f -> children.add(new Task(Step.FeatureAndDeclared, f, f.outer())));
+      }
   }
 
-  private static Stream<Entry<HasSourcePosition, AbstractFeature>> TraverseExpression(Expr expr, AbstractFeature outer)
+  private static void Expression(Expr expr, AbstractFeature outer, List<Task> children)
   {
-    if (expr == null)
+    if (expr != null)
       {
-        return Stream.empty();
+        children.add(new Task(Step.Expression, expr, outer));
       }
+  }
+
+  private static void ExpressionChildren(Expr expr, AbstractFeature outer, List<Task> children)
+  {
     if (expr instanceof AbstractBlock b)
       {
-        return TraverseBlock(b, outer);
+        b._expressions.forEach(s -> Expression(s, outer, children));
       }
-    if (expr instanceof AbstractMatch m)
+    else if (expr instanceof AbstractMatch m)
       {
-        return Util.ConcatStreams(
-          // used for generating match cases
-          AsStream(m, outer),
-          TraverseExpression(m.subject(), outer),
-          m.cases().stream().flatMap(c -> TraverseCase(c, outer)));
+        // used for generating match cases
+        children.add(new Task(Step.Emit, m, outer));
+        Expression(m.subject(), outer, children);
+        m.cases().forEach(c -> Expression(c.code(), outer, children));
       }
-    if (expr instanceof AbstractCall c)
+    else if (expr instanceof AbstractCall c)
       {
-        return TraverseCall(c, outer);
+        children.add(new Task(Step.Emit, c, outer));
+        c.actuals().forEach(a -> Expression(a, outer, children));
+        Expression(c.target(), outer, children);
       }
-    if (expr instanceof Tag t)
+    else if (expr instanceof Tag t)
       {
-        return TraverseExpression(t._value, outer);
+        Expression(t._value, outer, children);
       }
-    if (expr instanceof Box b)
+    else if (expr instanceof Box b)
       {
-        return TraverseExpression(b._value, outer);
+        Expression(b._value, outer, children);
       }
-    if (expr instanceof If i)
+    else if (expr instanceof If i)
       {
-        return Util.ConcatStreams(
-          TraverseExpression(i.cond, outer),
-          TraverseBlock(i.block, outer),
-          i.elseBlock != null ? TraverseBlock(i.elseBlock, outer): Stream.empty());
+        Expression(i.cond, outer, children);
+        Expression(i.block, outer, children);
+        Expression(i.elseBlock, outer, children);
       }
     // for offering completions on constants
-    if (expr instanceof Constant ac)
+    else if (expr instanceof Constant ac)
       {
-        return AsStream(ac, outer);
+        children.add(new Task(Step.Emit, ac, outer));
       }
-    if (expr instanceof AbstractFeature af)
+    else if (expr instanceof AbstractFeature af)
       {
-        return TraverseFeature(af, false);
+        children.add(new Task(Step.Feature, af, af.outer()));
       }
-    if (expr instanceof AbstractAssign a)
+    else if (expr instanceof AbstractAssign a)
       {
-        return TraverseAssign(a, outer);
+        children.add(new Task(Step.Emit, a, outer));
+        Expression(a._value, outer, children);
+        Expression(a._target, outer, children);
       }
-    if (expr instanceof InlineArray ia)
+    else if (expr instanceof InlineArray ia)
       {
-        return Stream.concat(AsStream(ia, outer), ia._elements.stream().flatMap(e -> TraverseExpression(e, outer)));
+        children.add(new Task(Step.Emit, ia, outer));
+        ia._elements.forEach(e -> Expression(e, outer, children));
       }
-    if ( expr == Call.ERROR
+    else if (!(expr == Call.ERROR
       || expr instanceof AbstractCurrent
       || expr instanceof Constant
       || expr instanceof Universe
       || expr instanceof AbstractLambda
-      || expr instanceof Nop)
+      || expr instanceof Nop))
       {
-        return Stream.empty();
+        throw new RuntimeException("TraverseExpression not implemented for: " + expr.getClass());
       }
-    throw new RuntimeException("TraverseExpression not implemented for: " + expr.getClass());
-  }
-
-  private static Stream<Entry<HasSourcePosition, AbstractFeature>> TraverseCall(AbstractCall c, AbstractFeature outer)
-  {
-    return Util.ConcatStreams(
-      AsStream(c, outer),
-      c.actuals().stream().flatMap(a -> TraverseExpression(a, outer)),
-      TraverseExpression(c.target(), outer));
   }
 
   /**
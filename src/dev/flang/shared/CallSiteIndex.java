@@ -0,0 +1,101 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class CallSiteIndex
+ *
+ *---------------------------------------------------------------------*/
+
+package dev.flang.shared;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import dev.flang.ast.AbstractCall;
+import dev.flang.ast.AbstractFeature;
+import dev.flang.util.ANY;
+
+/**
+ * the calls of a universe by called feature, so that the calls to a
+ * feature are found without walking the whole universe.
+ */
+public class CallSiteIndex extends ANY
+{
+
+  private final AbstractCall[] calls;
+
+  /**
+   * the feature calls[i] happens in
+   */
+  private final AbstractFeature[] outers;
+
+  /**
+   * indices in calls of the calls to a feature
+   */
+  private final Map<AbstractFeature, int[]> sites;
+
+  private CallSiteIndex(AbstractCall[] calls, AbstractFeature[] outers, Map<AbstractFeature, int[]> sites)
+  {
+    this.calls = calls;
+    this.outers = outers;
+    this.sites = sites;
+  }
+
+  /**
+   * index all calls happening in universe or its descendants.
+   */
+  public static CallSiteIndex Of(AbstractFeature universe)
+  {
+    var entries = ASTWalker
+      .Calls(universe)
+      .filter(entry -> entry.getKey().calledFeature() != null)
+      .toList();
+    var calls = new AbstractCall[entries.size()];
+    var outers = new AbstractFeature[entries.size()];
+    var byCallee = new HashMap<AbstractFeature, List<Integer>>();
+    for (var i = 0; i < calls.length; i++)
+      {
+        calls[i] = entries.get(i).getKey();
+        outers[i] = entries.get(i).getValue();
+        byCallee.computeIfAbsent(calls[i].calledFeature(), f -> new ArrayList<>()).add(i);
+      }
+    var sites = new HashMap<AbstractFeature, int[]>(byCallee.size() * 4 / 3 + 1);
+    byCallee.forEach((f, indices) -> sites.put(f, indices.stream().mapToInt(i -> i).toArray()));
+    return new CallSiteIndex(calls, outers, sites);
+  }
+
+  /**
+   * the calls to feature and the features they happen in,
+   * in the order of the traversal.
+   */
+  public Stream<SimpleEntry<AbstractCall, AbstractFeature>> CallsTo(AbstractFeature feature)
+  {
+    return Arrays
+      .stream(sites.getOrDefault(feature, new int[0]))
+      .mapToObj(i -> new SimpleEntry<>(calls[i], outers[i]));
+  }
+
+}
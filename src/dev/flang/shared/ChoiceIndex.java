@@ -0,0 +1,112 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class ChoiceIndex
+ *
+ *---------------------------------------------------------------------*/
+
+package dev.flang.shared;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import dev.flang.ast.AbstractFeature;
+import dev.flang.ast.AbstractType;
+import dev.flang.util.ANY;
+
+/**
+ * the choice types used by the features of one parse of a source text,
+ * by the features and names of their choice generics, built in one pass
+ * so that checking whether a feature is part of a choice does not walk
+ * the whole file.
+ */
+public class ChoiceIndex extends ANY
+{
+
+  /**
+   * feature's self type or, if isResultType, its result type is the
+   * choice type choice.
+   */
+  public record Use(AbstractFeature feature, AbstractType choice, boolean isResultType)
+  {
+  }
+
+  private final Map<AbstractFeature, List<Use>> byMember;
+
+  private final Map<String, List<Use>> byName;
+
+  private ChoiceIndex(Map<AbstractFeature, List<Use>> byMember, Map<String, List<Use>> byName)
+  {
+    this.byMember = byMember;
+    this.byName = byName;
+  }
+
+  /**
+   * index the choice types that are self or result types of features.
+   */
+  public static ChoiceIndex Of(Stream<AbstractFeature> features)
+  {
+    var byMember = new IdentityHashMap<AbstractFeature, List<Use>>();
+    var byName = new HashMap<String, List<Use>>();
+    features.forEach(f -> {
+      var selfType = f.selfType();
+      var resultType = f.resultType();
+      Stream
+        .of(new Use(f, selfType, false), new Use(f, resultType, true))
+        .filter(use -> use.choice().isChoice())
+        .forEach(use -> use
+          .choice()
+          .choiceGenerics()
+          .forEach(t -> {
+            if (!t.isGenericArgument())
+              {
+                byMember.computeIfAbsent(t.feature(), x -> new ArrayList<>()).add(use);
+              }
+            byName.computeIfAbsent(TypeTool.baseName(t), x -> new ArrayList<>()).add(use);
+          }));
+    });
+    return new ChoiceIndex(byMember, byName);
+  }
+
+  /**
+   * the uses of choice types that have feature as one of their generics,
+   * in the order of the traversal.
+   */
+  public Stream<Use> UsesOf(AbstractFeature feature)
+  {
+    return byMember.getOrDefault(feature, List.of()).stream();
+  }
+
+  /**
+   * the uses of choice types that have a generic named baseName,
+   * in the order of the traversal.
+   */
+  public Stream<Use> UsesOf(String baseName)
+  {
+    return byName.getOrDefault(baseName, List.of()).stream();
+  }
+
+}
@@ -0,0 +1,142 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class CommentIndex
+ *
+ *---------------------------------------------------------------------*/
+
+package dev.flang.shared;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import dev.flang.parser.Lexer.Token;
+import dev.flang.util.ANY;
+import dev.flang.util.SourceFile;
+import dev.flang.util.SourcePosition;
+
+/**
+ * the blocks of comment lines of a lexed text by the line following
+ * them, i.e. the line of the declaration they document, found in one
+ * pass over the tokens.
+ */
+class CommentIndex extends ANY
+{
+
+  /**
+   * the number of texts whose comments are kept
+   */
+  private static final int MAX_CACHED = 32;
+
+  /**
+   * source files compared by identity, each lexed text has its own
+   */
+  private record Key(SourceFile sourceFile)
+  {
+    @Override
+    public boolean equals(Object other)
+    {
+      return other instanceof Key k && k.sourceFile == sourceFile;
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return System.identityHashCode(sourceFile);
+    }
+  }
+
+  private static final Map<Key, CommentIndex> cache = Util.ThreadSafeLRUMap(MAX_CACHED, null);
+
+  /**
+   * the comment block ending on the line before the key, without the
+   * leading # of each line.
+   */
+  private final Map<Integer, String> blocks;
+
+  static CommentIndex Of(TokenStore.Lexed lexed)
+  {
+    return cache.computeIfAbsent(new Key(lexed.sourceFile()), k -> new CommentIndex(lexed));
+  }
+
+  private CommentIndex(TokenStore.Lexed lexed)
+  {
+    var sourceFile = lexed.sourceFile();
+    var tokens = lexed.tokens();
+    var numLines = sourceFile.byteLength() == 0 ? 0 : sourceFile.numLines();
+
+    // the text of the lines whose first token is a comment
+    var comments = new String[numLines + 2];
+    var lastLine = 0;
+    for (var i = 0; i < tokens.size(); i++)
+      {
+        if (tokens.token(i) != Token.t_ws)
+          {
+            var line = new SourcePosition(sourceFile, tokens.start(i)).line();
+            if (line != lastLine && tokens.token(i) == Token.t_comment)
+              {
+                comments[line] = CommentText(lexed, line, numLines);
+              }
+            lastLine = line;
+          }
+      }
+
+    blocks = new HashMap<>();
+    for (var line = 1; line <= numLines; line++)
+      {
+        if (comments[line] != null && comments[line + 1] == null)
+          {
+            var start = line;
+            while (start > 1 && comments[start - 1] != null)
+              {
+                start--;
+              }
+            blocks.put(line + 1, String.join(System.lineSeparator(), Arrays.copyOfRange(comments, start, line + 1)));
+          }
+      }
+  }
+
+  /**
+   * the text of the comment line without leading white space and #
+   */
+  private static String CommentText(TokenStore.Lexed lexed, int line, int numLines)
+  {
+    var sourceFile = lexed.sourceFile();
+    var start = sourceFile.lineStartPos(line);
+    var end = line < numLines ? sourceFile.lineStartPos(line + 1) : sourceFile.byteLength();
+    return new String(lexed.bytes(), start, end - start, StandardCharsets.UTF_8)
+      .trim()
+      .replaceAll("^#", "")
+      .trim();
+  }
+
+  /**
+   * the lines of the comment block directly above line, empty if there is none
+   */
+  String Before(int line)
+  {
+    return blocks.getOrDefault(line, "");
+  }
+
+}
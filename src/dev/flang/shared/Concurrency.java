@@ -26,30 +26,66 @@ Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
 
 package dev.flang.shared;
 
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import dev.flang.shared.concurrent.MaxExecutionTimeExceededException;
+import dev.flang.shared.concurrent.UniverseLock;
 import dev.flang.shared.records.ComputationPerformance;
 
 public class Concurrency
 {
 
-  // NYI for now we have to run most things more or less sequentially
-  // this is mainly because there is statically held artifacts in Types.java
-  private static ExecutorService executor = Executors.newSingleThreadExecutor(Executors.defaultThreadFactory());
+  /**
+   * maximum number of computations running in parallel.
+   * Computations on different universes still run one after the other,
+   * see UniverseLock.
+   */
+  private static final int MAX_PARALLEL_COMPUTATIONS = Math.min(8, Runtime.getRuntime().availableProcessors());
+
+  private static ExecutorService executor =
+    ReleasingUniverseLock(MAX_PARALLEL_COMPUTATIONS, MAX_PARALLEL_COMPUTATIONS, new LinkedBlockingQueue<>());
 
 
-  public final static ExecutorService MainExecutor = Executors.newCachedThreadPool(Executors.defaultThreadFactory());
+  public final static ExecutorService MainExecutor =
+    ReleasingUniverseLock(0, Integer.MAX_VALUE, new SynchronousQueue<>());
+
+
+  /**
+   * pool for splitting traversals of a whole universe, see FeatureTree
+   */
+  final static ForkJoinPool TraversalPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
 
+  /**
+   * thread pool whose threads leave the universe they worked on after
+   * every task, so that idle threads do not block parsing.
+   */
+  private static ExecutorService ReleasingUniverseLock(int corePoolSize, int maximumPoolSize,
+    BlockingQueue<Runnable> workQueue)
+  {
+    return new ThreadPoolExecutor(corePoolSize, maximumPoolSize, 60L, TimeUnit.SECONDS, workQueue,
+      Executors.defaultThreadFactory())
+      {
+        @Override
+        protected void afterExecute(Runnable r, Throwable t)
+        {
+          UniverseLock.Release();
+        }
+      };
+  }
 
   /**
-   * run callable on single thread executor.
+   * run callable on the computation thread pool.
    * periodically check if callable meanwhile has been cancelled
    * and/or maximum execution time has been reached
    * @param <T>
@@ -36,4 +36,5 @@ public class Context
   };
   public static Logger Logger = new DummyLogger();
   public static boolean MiddleEndEnabled = false;
+  public static PositionEncoding PositionEncoding = dev.flang.shared.PositionEncoding.Utf16;
 }
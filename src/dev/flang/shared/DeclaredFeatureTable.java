@@ -0,0 +1,140 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class DeclaredFeatureTable
+ *
+ *---------------------------------------------------------------------*/
+
+package dev.flang.shared;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import dev.flang.ast.AbstractFeature;
+import dev.flang.ast.Visi;
+import dev.flang.fe.LibraryFeature;
+import dev.flang.fe.SourceModule;
+import dev.flang.util.ANY;
+
+/**
+ * the declared features of the features of a parse, looked up in the
+ * source module once per feature and stored with flags that would
+ * otherwise be recomputed by every query.
+ */
+public class DeclaredFeatureTable extends ANY
+{
+
+  /**
+   * FeatureTool.IsInternal holds
+   */
+  public static final int INTERNAL = 1;
+
+  /**
+   * declared in the parsed sources or public in its library module
+   */
+  public static final int PUBLIC = 2;
+
+  public static final int TYPE_PARAMETER = 4;
+
+  public static final int ARGUMENT = 8;
+
+  /**
+   * the declared features of one feature and their flags
+   */
+  public static final class Declared
+  {
+    private final AbstractFeature[] features;
+
+    private final byte[] flags;
+
+    private Declared(AbstractFeature[] features)
+    {
+      this.features = features;
+      this.flags = new byte[features.length];
+      for (int i = 0; i < features.length; i++)
+        {
+          flags[i] = (byte) FlagsOf(features[i]);
+        }
+    }
+
+    /**
+     * the features that have all flags of required and none of excluded
+     */
+    public Stream<AbstractFeature> Features(int required, int excluded)
+    {
+      return IntStream
+        .range(0, features.length)
+        .filter(i -> (flags[i] & required) == required && (flags[i] & excluded) == 0)
+        .mapToObj(i -> features[i]);
+    }
+
+  }
+
+  private static final Declared EMPTY = new Declared(new AbstractFeature[0]);
+
+  private final SourceModule sourceModule;
+
+  /*
+   * Entries are computed outside of the map and then published, so that
+   * threads traversing the universe in parallel do not wait for each other.
+   */
+  private final Map<AbstractFeature, Declared> declared = new ConcurrentHashMap<>();
+
+  public DeclaredFeatureTable(SourceModule sourceModule)
+  {
+    this.sourceModule = sourceModule;
+  }
+
+  /**
+   * the declared features of feature
+   */
+  public Declared Of(AbstractFeature feature)
+  {
+    var result = declared.get(feature);
+    if (result == null)
+      {
+        result = TypeTool.ContainsError(feature.selfType())
+          ? EMPTY
+          : new Declared(sourceModule
+            .declaredFeatures(feature)
+            .values()
+            .toArray(AbstractFeature[]::new));
+        var previous = declared.putIfAbsent(feature, result);
+        if (previous != null)
+          {
+            result = previous;
+          }
+      }
+    return result;
+  }
+
+  private static int FlagsOf(AbstractFeature f)
+  {
+    return (FeatureTool.IsInternal(f) ? INTERNAL : 0)
+      | (!(f instanceof LibraryFeature) || f.visibility().eraseTypeVisibility() == Visi.PUB ? PUBLIC : 0)
+      | (f.isTypeParameter() ? TYPE_PARAMETER : 0)
+      | (f.isArgument() ? ARGUMENT : 0);
+  }
+
+}
@@ -0,0 +1,437 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class FeatureIndex
+ *
+ *---------------------------------------------------------------------*/
+
+package dev.flang.shared;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import dev.flang.ast.AbstractCall;
+import dev.flang.ast.AbstractFeature;
+import dev.flang.shared.concurrent.UniverseLock;
+import dev.flang.shared.records.IndexedCall;
+import dev.flang.shared.records.IndexedFeature;
+import dev.flang.shared.records.IndexedRange;
+import dev.flang.util.ANY;
+import dev.flang.util.SourcePosition;
+
+/**
+ * features and calls of a source text as needed for document symbols,
+ * hover and definition, persisted in a cache directory keyed by the hash
+ * of the source text.
+ *
+ * After a restart these requests are answered from the index until the
+ * source text has been parsed. Indices are stored when a document is saved,
+ * since after a restart the text is read from disk. The least recently
+ * used indices beyond MAX_FILES are deleted.
+ */
+public class FeatureIndex extends ANY
+{
+
+  /**
+   * incremented whenever the file format changes
+   */
+  private static final int FORMAT_VERSION = 2;
+
+  private static final int MAGIC = 0x46_5a_49_58; // FZIX
+
+  private static final int MEMORY_CACHE_MAX_SIZE = 20;
+
+  /**
+   * the maximum number of index files kept in the cache directory
+   */
+  private static final int MAX_FILES = 1000;
+
+  /**
+   * temporary files older than this are left over from failed writes
+   */
+  private static final long TMP_FILE_MAX_AGE_MILLIS = 60 * 60 * 1000;
+
+  /**
+   * the thread storing indices in the background
+   */
+  private static final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+    var thread = Executors.defaultThreadFactory().newThread(r);
+    thread.setName("fuzion-feature-index");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private static Path CacheDir = DefaultCacheDir();
+
+  /**
+   * indices read from or written to disk recently, by key
+   */
+  private static final Map<String, FeatureIndex> Loaded = Util.ThreadSafeLRUMap(MEMORY_CACHE_MAX_SIZE, null);
+
+  private final List<IndexedFeature> features;
+  private final List<IndexedCall> calls;
+
+  public FeatureIndex(List<IndexedFeature> features, List<IndexedCall> calls)
+  {
+    this.features = features;
+    this.calls = calls;
+  }
+
+  public List<IndexedFeature> features()
+  {
+    return features;
+  }
+
+  public List<IndexedCall> calls()
+  {
+    return calls;
+  }
+
+  /**
+   * calls whose range contains the one based line and column
+   */
+  public Stream<IndexedCall> CallsAt(int line, int column)
+  {
+    return calls.stream().filter(c -> c.range().Contains(line, column));
+  }
+
+  /**
+   * features whose name contains the one based line and column
+   */
+  public Stream<IndexedFeature> FeaturesAt(int line, int column)
+  {
+    return features.stream().filter(f -> f.name().Contains(line, column));
+  }
+
+  private static Path DefaultCacheDir()
+  {
+    var xdgCacheHome = System.getenv("XDG_CACHE_HOME");
+    var cacheHome = xdgCacheHome != null && !xdgCacheHome.isBlank()
+      ? Path.of(xdgCacheHome)
+      : Path.of(System.getProperty("user.home"), ".cache");
+    return cacheHome.resolve("fuzion-lsp").resolve("index");
+  }
+
+  public static void SetCacheDir(Path cacheDir)
+  {
+    CacheDir = cacheDir;
+  }
+
+  /**
+   * the key of the current text of uri, it includes
+   * the base library and java modules the text is parsed with.
+   */
+  private static String Key(URI uri)
+  {
+    return Util.ContentHash(FORMAT_VERSION + SourceText.ContentHash(uri) + SourceText.FuzionHome
+      + ParserTool.BaseLibraryHash());
+  }
+
+  private static Path PathOf(String key)
+  {
+    return CacheDir.resolve(key + ".idx");
+  }
+
+  /**
+   * the index of the current text of uri if one has been stored
+   */
+  public static Optional<FeatureIndex> Of(URI uri)
+  {
+    var key = Key(uri);
+    var result = Loaded.get(key);
+    if (result == null)
+      {
+        result = ErrorHandling.ResultOrDefault(() -> Read(PathOf(key)), null);
+        if (result != null)
+          {
+            Loaded.put(key, result);
+            // recently used, see Prune
+            var now = FileTime.fromMillis(System.currentTimeMillis());
+            ErrorHandling.ResultOrDefault(() -> Files.setLastModifiedTime(PathOf(key), now), null);
+          }
+      }
+    return Optional.ofNullable(result);
+  }
+
+  /**
+   * store the index of the current text of uri in the background,
+   * used when the document was saved.
+   */
+  public static void Persist(URI uri)
+  {
+    writer.submit(() -> {
+      try
+        {
+          Store(uri);
+        }
+      catch (Throwable e)
+        {
+          Context.Logger.Warning("[FeatureIndex] failed storing index of " + uri + ": " + e);
+        }
+      finally
+        {
+          UniverseLock.Release();
+        }
+    });
+  }
+
+  /**
+   * create and persist the index of the current text of uri
+   * unless it has been stored before.
+   */
+  public static void Store(URI uri)
+  {
+    var key = Key(uri);
+    var path = PathOf(key);
+    if (Loaded.containsKey(key) || Files.exists(path))
+      {
+        return;
+      }
+    var index = Create(uri);
+    try
+      {
+        Files.createDirectories(CacheDir);
+        var tmp = Files.createTempFile(CacheDir, key, ".tmp");
+        index.Write(tmp);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Loaded.put(key, index);
+        Prune();
+      }
+    catch (IOException e)
+      {
+        Context.Logger.Warning("[FeatureIndex] failed writing " + path + ": " + e);
+      }
+  }
+
+  /**
+   * delete the least recently used index files beyond MAX_FILES
+   * and temporary files left over from failed writes.
+   */
+  private static void Prune() throws IOException
+  {
+    List<Path> files;
+    try (var list = Files.list(CacheDir))
+      {
+        files = list.collect(Collectors.toList());
+      }
+    var now = System.currentTimeMillis();
+    files
+      .stream()
+      .filter(p -> p.toString().endsWith(".tmp") && now - LastModified(p) > TMP_FILE_MAX_AGE_MILLIS)
+      .forEach(FeatureIndex::Delete);
+    files
+      .stream()
+      .filter(p -> p.toString().endsWith(".idx"))
+      .map(p -> new SimpleEntry<>(p, LastModified(p)))
+      .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
+      .skip(MAX_FILES)
+      .forEach(e -> Delete(e.getKey()));
+  }
+
+  private static void Delete(Path path)
+  {
+    ErrorHandling.ResultOrDefault(() -> Files.deleteIfExists(path), false);
+  }
+
+  private static long LastModified(Path path)
+  {
+    return ErrorHandling.ResultOrDefault(() -> Files.getLastModifiedTime(path).toMillis(), 0L);
+  }
+
+  /**
+   * compute the index of uri from its parse result
+   */
+  public static FeatureIndex Create(URI uri)
+  {
+    var allFeatures = ParserTool
+      .TopLevelFeatures(uri)
+      .flatMap(f -> FeatureTool.SelfAndDescendants(f))
+      .filter(f -> !f.pos().isBuiltIn())
+      .collect(Collectors.toList());
+    var ids = new IdentityHashMap<AbstractFeature, Integer>();
+    for (var f : allFeatures)
+      {
+        ids.put(f, ids.size());
+      }
+    var features = allFeatures
+      .stream()
+      .map(f -> {
+        var name = FeatureTool.BareNamePosition(f);
+        var bareName = FeatureTool.BareName(f);
+        return new IndexedFeature(
+          ids.getOrDefault(f.outer(), -1),
+          FeatureTool.Label(f, false),
+          FeatureTool.HoverText(f),
+          FeatureKind.Of(f),
+          Range(f.pos(), ParserTool.endOfFeature(f)),
+          new IndexedRange(name.line(), name.column(), name.line(),
+            name.column() + bareName.codePointCount(0, bareName.length())),
+          f.inherits()
+            .stream()
+            .filter(c -> c.calledFeature() != null)
+            .map(c -> c.calledFeature().qualifiedName())
+            .collect(Collectors.toList()));
+      })
+      .collect(Collectors.toList());
+    var calls = ASTWalker
+      .Traverse(uri)
+      .map(e -> e.getKey())
+      .filter(item -> item instanceof AbstractCall)
+      .map(item -> (AbstractCall) item)
+      .filter(c -> !c.pos().isBuiltIn()
+        && c.calledFeature() != null
+        && !c.calledFeature().pos().isBuiltIn()
+        && !FeatureTool.IsInternal(c.calledFeature()))
+      .map(c -> new IndexedCall(
+        Range(c.pos(), LexerTool.EndOfToken(c.pos())),
+        ParserTool.getUri(c.calledFeature().pos()).toString(),
+        Range(c.calledFeature().pos(), ParserTool.endOfFeature(c.calledFeature())),
+        FeatureTool.HoverText(c.calledFeature())))
+      .distinct()
+      .collect(Collectors.toList());
+    return new FeatureIndex(features, calls);
+  }
+
+  private static IndexedRange Range(SourcePosition start, SourcePosition end)
+  {
+    return new IndexedRange(start.line(), start.column(), end.line(), end.column());
+  }
+
+  public void Write(Path path) throws IOException
+  {
+    try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path))))
+      {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(features.size());
+        for (var f : features)
+          {
+            out.writeInt(f.outer());
+            WriteString(out, f.label());
+            WriteString(out, f.hover());
+            out.writeInt(f.kind().ordinal());
+            WriteRange(out, f.range());
+            WriteRange(out, f.name());
+            out.writeInt(f.inherits().size());
+            for (var i : f.inherits())
+              {
+                WriteString(out, i);
+              }
+          }
+        out.writeInt(calls.size());
+        for (var c : calls)
+          {
+            WriteRange(out, c.range());
+            WriteString(out, c.targetUri());
+            WriteRange(out, c.target());
+            WriteString(out, c.hover());
+          }
+      }
+  }
+
+  public static FeatureIndex Read(Path path) throws IOException
+  {
+    try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path))))
+      {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION)
+          {
+            throw new IOException("not a feature index of version " + FORMAT_VERSION + ": " + path);
+          }
+        var featureCount = in.readInt();
+        var features = new ArrayList<IndexedFeature>(featureCount);
+        for (int i = 0; i < featureCount; i++)
+          {
+            var outer = in.readInt();
+            var label = ReadString(in);
+            var hover = ReadString(in);
+            var kind = FeatureKind.values()[in.readInt()];
+            var range = ReadRange(in);
+            var name = ReadRange(in);
+            var inheritsCount = in.readInt();
+            var inherits = new ArrayList<String>(inheritsCount);
+            for (int j = 0; j < inheritsCount; j++)
+              {
+                inherits.add(ReadString(in));
+              }
+            features.add(new IndexedFeature(outer, label, hover, kind, range, name, inherits));
+          }
+        var callCount = in.readInt();
+        var calls = new ArrayList<IndexedCall>(callCount);
+        for (int i = 0; i < callCount; i++)
+          {
+            calls.add(new IndexedCall(ReadRange(in), ReadString(in), ReadRange(in), ReadString(in)));
+          }
+        return new FeatureIndex(features, calls);
+      }
+  }
+
+  private static void WriteRange(DataOutputStream out, IndexedRange range) throws IOException
+  {
+    out.writeInt(range.line());
+    out.writeInt(range.column());
+    out.writeInt(range.endLine());
+    out.writeInt(range.endColumn());
+  }
+
+  private static IndexedRange ReadRange(DataInputStream in) throws IOException
+  {
+    return new IndexedRange(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+  }
+
+  /**
+   * unlike writeUTF this is not limited to 64KB
+   */
+  private static void WriteString(DataOutputStream out, String str) throws IOException
+  {
+    var bytes = str.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String ReadString(DataInputStream in) throws IOException
+  {
+    var bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+}
@@ -0,0 +1,71 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class FeatureKind
+ *
+ *---------------------------------------------------------------------*/
+
+package dev.flang.shared;
+
+import dev.flang.ast.AbstractFeature;
+
+/**
+ * coarse classification of features, e.g. for choosing symbol icons.
+ */
+public enum FeatureKind
+{
+  Choice,
+  Bool,
+  Number,
+  Constructor,
+  Field,
+  Routine,
+  Other;
+
+  public static FeatureKind Of(AbstractFeature feature)
+  {
+    if (feature.isChoice())
+      {
+        return Choice;
+      }
+    if (feature.isBuiltInPrimitive() && "bool".equals(feature.featureName().baseName()))
+      {
+        return Bool;
+      }
+    if (feature.isBuiltInPrimitive())
+      {
+        return Number;
+      }
+    if (feature.isConstructor() || feature.isIntrinsic())
+      {
+        return Constructor;
+      }
+    if (feature.isField())
+      {
+        return Field;
+      }
+    if (feature.isRoutine())
+      {
+        return Routine;
+      }
+    return Other;
+  }
+}
@@ -29,8 +29,10 @@ package dev.flang.shared;
 
 import java.net.URI;
 import java.util.AbstractMap.SimpleEntry;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -38,10 +40,10 @@ import java.util.stream.Stream;
 
 import dev.flang.ast.AbstractCall;
 import dev.flang.ast.AbstractFeature;
-import dev.flang.ast.AbstractType;
 import dev.flang.ast.Feature;
 import dev.flang.ast.State;
 import dev.flang.ast.Types;
+import dev.flang.shared.concurrent.UniverseLock;
 import dev.flang.util.ANY;
 import dev.flang.util.Errors;
 import dev.flang.util.FuzionConstants;
@@ -75,9 +77,18 @@ public class FeatureTool extends ANY
    * @return
    */
   public static Stream<AbstractFeature> SelfAndDescendants(AbstractFeature feature)
+  {
+    return feature.isUniverse()
+      ? FeatureTree
+        .Collect(feature, f -> List.of(f), ParserTool::DeclaredFeatures, f -> Descend(f).toList())
+        .stream()
+      : Descend(feature);
+  }
+
+  private static Stream<AbstractFeature> Descend(AbstractFeature feature)
   {
     return Stream.concat(Stream.of(feature),
-      ParserTool.DeclaredFeatures(feature).flatMap(f -> SelfAndDescendants(f)));
+      ParserTool.DeclaredFeatures(feature).flatMap(f -> Descend(f)));
   }
 
   /**
@@ -88,34 +99,13 @@ public class FeatureTool extends ANY
    */
   public static String CommentOf(AbstractFeature feature)
   {
-    var line = feature.pos().line() - 1;
-    var commentLines = new ArrayList<String>();
-    while (true)
-      {
-        var pos = SourcePositionTool.ByLine(feature.pos()._sourceFile, line);
-        if (line < 1 || !LexerTool.isCommentLine(pos))
-          {
-            break;
-          }
-        commentLines.add(SourceText.LineAt(pos));
-        line = line - 1;
-      }
-    Collections.reverse(commentLines);
-
     var commentsOfRedefinedFeatures = feature
       .redefines()
       .stream()
       .map(f -> System.lineSeparator() + "redefines " + f.qualifiedName() + ":" + System.lineSeparator() + CommentOf(f))
       .collect(Collectors.joining(System.lineSeparator()));
 
-    return commentLines
-      .stream()
-      .map(l -> l.trim())
-      .map(l -> l
-        .replaceAll("^#", "")
-        .trim())
-      .collect(Collectors.joining(System.lineSeparator()))
-      + commentsOfRedefinedFeatures;
+    return LexerTool.CommentBefore(feature.pos()) + commentsOfRedefinedFeatures;
   }
 
   /**
@@ -186,12 +176,16 @@ public class FeatureTool extends ANY
                      SourcePositionTool.ByLine(feature.pos()._sourceFile, feature.pos().line())
                      : feature.pos();
 
-    return LexerTool
-      .TokensFrom(start)
-      .dropWhile(tokenInfo -> !tokenInfo.text().equals(feature.featureName().baseName()))
-      .map(tokenInfo -> tokenInfo.start())
-      .findFirst()
-      .get();
+    var cursor = LexerTool.CursorAt(start);
+    while (cursor.Valid() && !cursor.Text().equals(feature.featureName().baseName()))
+      {
+        cursor.Next();
+      }
+    if (!cursor.Valid())
+      {
+        throw new NoSuchElementException();
+      }
+    return cursor.Start();
   }
 
   /**
@@ -327,6 +321,16 @@ public class FeatureTool extends ANY
     return MarkdownTool.Italic(CommentOf(f));
   }
 
+  /**
+   * markdown text shown when hovering over f
+   */
+  public static String HoverText(AbstractFeature f)
+  {
+    return (CommentOfInMarkdown(f) + System.lineSeparator()
+      + System.lineSeparator()
+      + Label(f, true)).trim();
+  }
+
   /**
    *
    * @param feature
@@ -339,9 +343,43 @@ public class FeatureTool extends ANY
         && f.pos().column() <= feature.pos().column());
   }
 
+  /**
+   * the features of features, which must all be descendants of the same top
+   * level feature, for which IsOfLastFeature holds.
+   *
+   * Sweeps the features from the last line to the first, keeping the least
+   * column of the features in the lines already seen.
+   */
+  static Set<AbstractFeature> LastFeatures(List<AbstractFeature> features)
+  {
+    var sorted = features
+      .stream()
+      .sorted(Comparator.comparingInt((AbstractFeature f) -> f.pos().line()).reversed())
+      .toList();
+    var result = new HashSet<AbstractFeature>();
+    var minColumnBelow = Integer.MAX_VALUE;
+    var i = 0;
+    while (i < sorted.size())
+      {
+        var line = sorted.get(i).pos().line();
+        var minColumn = Integer.MAX_VALUE;
+        for (; i < sorted.size() && sorted.get(i).pos().line() == line; i++)
+          {
+            var f = sorted.get(i);
+            if (f.pos().column() < minColumnBelow && !IsFunctionCall(f))
+              {
+                result.add(f);
+              }
+            minColumn = Math.min(minColumn, f.pos().column());
+          }
+        minColumnBelow = Math.min(minColumnBelow, minColumn);
+      }
+    return result;
+  }
+
   private static boolean IsFunctionCall(AbstractFeature f)
   {
-    return f.redefines().contains(Types.resolved.f_Function_call);
+    return f.redefines().contains(ParserTool.Resolved(f).f_Function_call);
   }
 
   private static Set<AbstractFeature> Callers(AbstractFeature f)
@@ -392,10 +430,29 @@ public class FeatureTool extends ANY
    */
   public static Stream<SimpleEntry<AbstractCall, AbstractFeature>> CallsTo(AbstractFeature feature)
   {
-    var universe = FeatureTool.Universe(feature);
-    return ASTWalker.Calls(universe)
-      .filter(entry -> entry.getKey().calledFeature() != null
-        && entry.getKey().calledFeature().equals(feature));
+    return ParserTool
+      .CallSites(feature)
+      .map(index -> index.CallsTo(feature))
+      .orElseGet(() -> ASTWalker.Calls(FeatureTool.Universe(feature))
+        .filter(entry -> entry.getKey().calledFeature() != null
+          && entry.getKey().calledFeature().equals(feature)));
+  }
+
+  /**
+   * like CallsTo but includes calls in the other files of the workspace.
+   * May wait for the workspace to be parsed, so only use this where
+   * results from other files are really needed, e.g. references.
+   *
+   * Both kinds of calls are collected while the universe they belong to is
+   * held, afterwards the current thread is back in the universe of feature.
+   */
+  public static Stream<SimpleEntry<AbstractCall, AbstractFeature>> CallsInWorkspaceTo(AbstractFeature feature)
+  {
+    var calls = CallsTo(feature).toList();
+    var resolved = ParserTool.Resolved(feature);
+    var callsInWorkspace = Workspace.CallsTo(feature);
+    UniverseLock.Enter(resolved);
+    return Stream.concat(calls.stream(), callsInWorkspace.stream());
   }
 
   static AbstractFeature Universe(AbstractFeature feature)
@@ -411,20 +468,10 @@ public class FeatureTool extends ANY
   public static boolean IsUsedInChoice(AbstractFeature af)
   {
     var uri = ParserTool.getUri(af.pos());
-    var result = ASTWalker
-      .Features(uri)
-      .anyMatch(f -> FeatureIsChoiceMember(f.selfType(), af)
-        || f.hasResultField() && FeatureIsChoiceMember(f.resultType(), af));
-    return result;
-  }
-
-  private static boolean FeatureIsChoiceMember(AbstractType at, AbstractFeature af)
-  {
-    return at.isChoice()
-      && at.choiceGenerics()
-        .stream()
-        .map(t -> t.feature().selfType())
-        .anyMatch(t -> t.equals(af.selfType()));
+    return ParserTool
+      .Choices(uri)
+      .UsesOf(af)
+      .anyMatch(use -> !use.isResultType() || use.feature().hasResultField());
   }
 
   public static boolean DoesInherit(AbstractFeature af)
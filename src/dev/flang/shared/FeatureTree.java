@@ -0,0 +1,127 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class FeatureTree
+ *
+ *---------------------------------------------------------------------*/
+
+package dev.flang.shared;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import dev.flang.ast.AbstractFeature;
+import dev.flang.ast.Types.Resolved;
+import dev.flang.shared.concurrent.UniverseLock;
+
+/**
+ * collects results over a feature and its declared features, forking a
+ * task for each subtree down to SPLIT_DEPTH so that scans of a whole
+ * universe use all cores.
+ *
+ * The result is in the same order as collecting sequentially: the results
+ * of the feature itself, followed by those of each subtree.
+ */
+class FeatureTree<T> extends RecursiveTask<List<T>>
+{
+
+  /**
+   * the depth down to which subtrees get tasks of their own,
+   * i.e. the top level features and their declared features.
+   */
+  private static final int SPLIT_DEPTH = 2;
+
+  private final Resolved resolved;
+  private final AbstractFeature feature;
+  private final int depth;
+
+  /**
+   * the results of a feature without its declared features
+   */
+  private final Function<AbstractFeature, List<T>> own;
+
+  /**
+   * the declared features to descend into
+   */
+  private final Function<AbstractFeature, Stream<AbstractFeature>> children;
+
+  /**
+   * the results of a whole subtree, collected sequentially
+   */
+  private final Function<AbstractFeature, List<T>> subtree;
+
+  private FeatureTree(Resolved resolved, AbstractFeature feature, int depth, Function<AbstractFeature, List<T>> own,
+    Function<AbstractFeature, Stream<AbstractFeature>> children, Function<AbstractFeature, List<T>> subtree)
+  {
+    this.resolved = resolved;
+    this.feature = feature;
+    this.depth = depth;
+    this.own = own;
+    this.children = children;
+    this.subtree = subtree;
+  }
+
+  /**
+   * collect the results of root and its subtrees in parallel.
+   *
+   * Falls back to subtree(root) if the current thread does not work on the
+   * universe of root in a way other threads may join, e.g. while parsing.
+   * The caller must not hold any lock the functions may need, since the
+   * tasks run on other threads.
+   */
+  static <T> List<T> Collect(AbstractFeature root, Function<AbstractFeature, List<T>> own,
+    Function<AbstractFeature, Stream<AbstractFeature>> children, Function<AbstractFeature, List<T>> subtree)
+  {
+    var resolved = ParserTool.Resolved(root);
+    if (!UniverseLock.Holds(resolved))
+      {
+        return subtree.apply(root);
+      }
+    return Concurrency.TraversalPool.invoke(new FeatureTree<>(resolved, root, 0, own, children, subtree));
+  }
+
+  @Override
+  protected List<T> compute()
+  {
+    return UniverseLock.In(resolved, () -> {
+      if (depth >= SPLIT_DEPTH)
+        {
+          return subtree.apply(feature);
+        }
+      var tasks = children
+        .apply(feature)
+        .map(f -> new FeatureTree<>(resolved, f, depth + 1, own, children, subtree))
+        .toList();
+      invokeAll(tasks);
+      var result = new ArrayList<T>(own.apply(feature));
+      for (var task : tasks)
+        {
+          result.addAll(task.join());
+        }
+      return result;
+    });
+  }
+
+}
@@ -26,11 +26,11 @@ Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
 
 package dev.flang.shared;
 
-import java.util.List;
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import dev.flang.parser.Lexer;
@@ -44,6 +44,11 @@ import dev.flang.util.SourcePosition;
 public class LexerTool extends ANY
 {
 
+  /**
+   * the file name of the lexer checking identifiers
+   */
+  private static final Path IDENTIFIER_PATH = Path.of("identifier");
+
   /**
    * Is str a valid identifier?
    * @param str
@@ -51,31 +56,10 @@ public class LexerTool extends ANY
    */
   public static boolean IsValidIdentifier(String str)
   {
-    var isIdentifier = IO.WithTextInputStream(str, () -> {
-      var lexer = NewLexerStdIn();
-      var startsWithIdent = lexer.current() == Token.t_ident;
-      lexer.nextRaw();
-      return startsWithIdent && lexer.current().equals(Token.t_eof);
-    });
-    return isIdentifier;
-  }
-
-  private static Map<String, List<TokenInfo>> tokenCache =
-    Util.ThreadSafeLRUMap(1, (removed) -> {
-    });
-
-  private static Stream<TokenInfo> Tokenize(SourcePosition pos)
-  {
-    return IO.WithTextInputStream(SourceText.getText(pos), () -> {
-      var lexer = NewLexerStdIn();
-      return Stream.generate(() -> {
-        // lexer has path stdin, so we pass sourcefile with original path
-        // and the bytes of the current lexer.
-        var result = tokenInfo(lexer, new SourceFile(pos._sourceFile._fileName, lexer.bytes()));
-        advance(lexer);
-        return result;
-      }).takeWhile(tokenInfo -> tokenInfo.token() != Token.t_eof);
-    });
+    var lexer = NewLexer(IDENTIFIER_PATH, str.getBytes(StandardCharsets.UTF_8), 0);
+    var startsWithIdent = lexer.current() == Token.t_ident;
+    lexer.nextRaw();
+    return startsWithIdent && lexer.current().equals(Token.t_eof);
   }
 
   /**
@@ -85,16 +69,50 @@ public class LexerTool extends ANY
    */
   public static Stream<TokenInfo> TokensFrom(SourcePosition start)
   {
+    var lexed = Lexed(start);
+    var positionsIn = PositionsIn(start, lexed);
+    return IntStream
+      .range(lexed.tokens().IndexAfter(start.bytePos()), lexed.tokens().size())
+      .mapToObj(i -> lexed.TokenInfo(i, positionsIn));
+  }
+
+  /**
+   * @param start
+   * @return cursor at the token at start, or the next token
+   * if there is no token at start.
+   */
+  public static TokenCursor CursorAt(SourcePosition start)
+  {
+    var lexed = Lexed(start);
+    return new TokenCursor(lexed, PositionsIn(start, lexed), lexed.tokens().IndexAfter(start.bytePos()));
+  }
+
+  /**
+   * the source file the positions of the tokens lexed from start refer to.
+   *
+   * If start is in the source file of a cached parse, the text of that parse
+   * was lexed and the positions refer to its source file, so that they can
+   * be mapped to the current text like start, see ParserTool.CurrentLine.
+   * Otherwise they refer to the source file of the lexed text.
+   */
+  private static SourceFile PositionsIn(SourcePosition start, TokenStore.Lexed lexed)
+  {
+    return ParserTool.TextOf(start._sourceFile).isPresent()
+      ? start._sourceFile
+      : lexed.sourceFile();
+  }
+
+  private static TokenStore.Lexed Lexed(SourcePosition start)
+  {
+    var result = TokenStore.Of(SourceText.UriOf(start), SourceText.getText(start));
+
     if (PRECONDITIONS)
-      require(start.bytePos() <= SourceText.getText(start).getBytes().length);
+      require(start.bytePos() <= result.bytes().length);
 
-    return tokenCache.computeIfAbsent(SourceText.getText(start),
-      (k) -> Tokenize(start).collect(Collectors.toUnmodifiableList()))
-      .stream()
-      .dropWhile(x -> start.bytePos() >= x.end().bytePos());
+    return result;
   }
 
-  private static void advance(Lexer lexer)
+  static void advance(Lexer lexer)
   {
     lexer.nextRaw();
     while (lexer.current() == Token.t_error ||
@@ -114,9 +132,12 @@ public class LexerTool extends ANY
    */
   public static Optional<TokenInfo> NextTokenOfType(SourcePosition start, Set<Token> tokens)
   {
-    return TokensFrom(start)
-      .filter(x -> tokens.contains(x.token()))
-      .findFirst();
+    var cursor = CursorAt(start);
+    while (cursor.Valid() && !tokens.contains(cursor.Token()))
+      {
+        cursor.Next();
+      }
+    return cursor.Valid() ? Optional.of(cursor.TokenInfo()) : Optional.empty();
   }
 
   /**
@@ -125,18 +146,20 @@ public class LexerTool extends ANY
    */
   public static Tokens TokensAt(SourcePosition params)
   {
-
-    var tokens = TokensFrom(GoLeft(params))
-      .limit(2)
-      .collect(Collectors.toList());
-
     var eofPos = new SourcePosition(params._sourceFile,
       params._sourceFile.byteLength());
 
     var eof = new TokenInfo(eofPos, eofPos, "", Token.t_eof);
 
-    var token1 = tokens.size() > 0 ? tokens.get(0): eof;
-    var token2 = tokens.size() > 1 ? tokens.get(1): eof;
+    var cursor = CursorAt(GoLeft(params));
+    var token1 = eof;
+    var token2 = eof;
+    if (cursor.Valid())
+      {
+        token1 = cursor.TokenInfo();
+        cursor.Next();
+        token2 = cursor.Valid() ? cursor.TokenInfo() : eof;
+      }
 
     // between two tokens
     if (token1.end().line() == params.line()
@@ -148,50 +171,44 @@ public class LexerTool extends ANY
   }
 
   /*
-   * creates and initializes a lexer that reads from stdin
+   * creates a lexer for bytes whose current token is the one
+   * at byte offset from.
+   *
+   * The lexer works on bytes only, so several lexers may run concurrently.
    */
-  private static Lexer NewLexerStdIn()
+  static Lexer NewLexer(Path path, byte[] bytes, int from)
   {
-    var lexer = new Lexer(SourceFile.STDIN, null);
+    var lexer = new Lexer(path, bytes);
     // HACK the following is necessary because currently on instantiation
     // lexer calls next(), skipping any raw tokens at start
-    lexer.setPos(0);
+    lexer.setPos(from);
     advance(lexer);
     return lexer;
   }
 
   /**
-   * creates a token info from the current lexer
-   *
-   * @param lexer
-   * @param sf
+   * Is this line a comment?
+   * @param params
    * @return
-   *
    */
-  private static TokenInfo tokenInfo(Lexer lexer, SourceFile sf)
+  public static boolean isCommentLine(SourcePosition params)
   {
-    var startPos = lexer.sourcePos(lexer.tokenPos());
-    var start = new SourcePosition(sf, startPos.bytePos());
-    var endPos = lexer.sourcePos(lexer.bytePos());
-    var end = new SourcePosition(sf, endPos.bytePos());
-    var tokenText = lexer.asString(lexer.tokenPos(), lexer.bytePos());
-    var token = lexer.current();
-    return new TokenInfo(start, end, tokenText, token);
+    var cursor = CursorAt(params);
+    // skip white space and tokens that start in previous lines
+    while (cursor.Valid() && (cursor.Token() == Token.t_ws || cursor.Start().line() < params.line()))
+      {
+        cursor.Next();
+      }
+    return cursor.Valid() && cursor.Token() == Token.t_comment && cursor.Start().line() == params.line();
   }
 
   /**
-   * Is this line a comment?
-   * @param params
-   * @return
+   * the comment lines directly above the line of pos, without their
+   * leading #, empty if there are none.
    */
-  public static boolean isCommentLine(SourcePosition params)
+  public static String CommentBefore(SourcePosition pos)
   {
-    return TokensFrom(params)
-      .filter(x -> x.start().line() == params.line())
-      .dropWhile(x -> x.token() == Token.t_ws)
-      .findFirst()
-      .map(x -> x.token() == Token.t_comment)
-      .orElse(false);
+    return CommentIndex.Of(Lexed(pos)).Before(pos.line());
   }
 
   /**
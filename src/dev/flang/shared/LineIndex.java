@@ -0,0 +1,313 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class LineIndex
+ *
+ *---------------------------------------------------------------------*/
+
+package dev.flang.shared;
+
+import java.util.Map;
+
+import dev.flang.util.ANY;
+import dev.flang.util.SourceFile;
+
+/**
+ * the byte offsets of the lines of a source file and, for lines that contain
+ * non ASCII characters, the byte and UTF-16 offsets of their code points.
+ *
+ * Converts between byte offsets and line/column in O(1) for ASCII lines and
+ * O(log n) otherwise. Columns are counted in code points and one based,
+ * like SourcePosition.column().
+ */
+public class LineIndex extends ANY
+{
+
+  /**
+   * the number of source files whose index is kept
+   */
+  private static final int MAX_CACHED = 64;
+
+  /**
+   * source files are compared by identity, a new text gets a new source file.
+   */
+  private record Key(SourceFile sourceFile)
+  {
+    @Override
+    public boolean equals(Object other)
+    {
+      return other instanceof Key k && k.sourceFile == sourceFile;
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return System.identityHashCode(sourceFile);
+    }
+  }
+
+  private static final Map<Key, LineIndex> cache = Util.ThreadSafeLRUMap(MAX_CACHED, null);
+
+  private final SourceFile sourceFile;
+
+  /**
+   * byte offset of the start of line i + 1
+   */
+  private final int[] lineStarts;
+
+  /**
+   * for lines with non ASCII characters, the byte offsets of the code points
+   * of line i + 1 followed by the offset of the line end, null otherwise.
+   */
+  private final int[][] codePointStarts;
+
+  /**
+   * for lines with non ASCII characters, the UTF-16 offsets in the line of
+   * the code points of line i + 1 followed by the line length, null otherwise.
+   */
+  private final int[][] utf16Offsets;
+
+  /**
+   * the index of sourceFile, computed on first use.
+   */
+  public static LineIndex Of(SourceFile sourceFile)
+  {
+    return cache.computeIfAbsent(new Key(sourceFile), k -> new LineIndex(sourceFile));
+  }
+
+  private LineIndex(SourceFile sourceFile)
+  {
+    this.sourceFile = sourceFile;
+    var numLines = sourceFile.byteLength() == 0 ? 0 : sourceFile.numLines();
+    lineStarts = new int[numLines];
+    codePointStarts = new int[numLines][];
+    utf16Offsets = new int[numLines][];
+    for (var i = 0; i < numLines; i++)
+      {
+        lineStarts[i] = sourceFile.lineStartPos(i + 1);
+      }
+    for (var i = 0; i < numLines; i++)
+      {
+        var start = lineStarts[i];
+        var end = LineEnd(i);
+        var codePoints = 0;
+        var ascii = true;
+        for (var pos = start; pos < end; pos += sourceFile.codePointSize(pos))
+          {
+            ascii = ascii && sourceFile.codePointSize(pos) == 1;
+            codePoints++;
+          }
+        if (!ascii)
+          {
+            var bytes = new int[codePoints + 1];
+            var utf16 = new int[codePoints + 1];
+            var pos = start;
+            for (var k = 0; k < codePoints; k++)
+              {
+                var size = sourceFile.codePointSize(pos);
+                bytes[k] = pos;
+                // code points encoded in four bytes are outside of the BMP
+                utf16[k + 1] = utf16[k] + (size == 4 ? 2 : 1);
+                pos += size;
+              }
+            bytes[codePoints] = end;
+            codePointStarts[i] = bytes;
+            utf16Offsets[i] = utf16;
+          }
+      }
+  }
+
+  private int LineEnd(int i)
+  {
+    return i + 1 < lineStarts.length ? lineStarts[i + 1] : sourceFile.byteLength();
+  }
+
+  public int NumLines()
+  {
+    return lineStarts.length;
+  }
+
+  /**
+   * the one based line of bytePos
+   */
+  public int Line(int bytePos)
+  {
+    return Floor(lineStarts, bytePos) + 1;
+  }
+
+  /**
+   * the one based column, counted in code points, of bytePos
+   */
+  public int Column(int bytePos)
+  {
+    if (lineStarts.length == 0)
+      {
+        return 1;
+      }
+    var i = Line(bytePos) - 1;
+    return codePointStarts[i] == null
+      ? bytePos - lineStarts[i] + 1
+      : CodePointIndex(i, bytePos) + 1;
+  }
+
+  /**
+   * the zero based offset in UTF-16 code units of bytePos in its line
+   */
+  public int Utf16Column(int bytePos)
+  {
+    if (lineStarts.length == 0)
+      {
+        return 0;
+      }
+    var i = Line(bytePos) - 1;
+    return codePointStarts[i] == null
+      ? bytePos - lineStarts[i]
+      : utf16Offsets[i][CodePointIndex(i, bytePos)];
+  }
+
+  /**
+   * the zero based offset of bytePos in its line counted in encoding
+   */
+  public int Character(int bytePos, PositionEncoding encoding)
+  {
+    switch (encoding)
+      {
+      case Utf8 :
+        return lineStarts.length == 0 ? 0 : bytePos - lineStarts[Line(bytePos) - 1];
+      case Utf16 :
+        return Utf16Column(bytePos);
+      default:
+        return Column(bytePos) - 1;
+      }
+  }
+
+  /**
+   * the byte offset of the one based line and the zero based character
+   * counted in encoding. A character in the middle of a code point is
+   * rounded down, a character beyond the end of the line results in the end
+   * of the line.
+   */
+  public int BytePos(int line, int character, PositionEncoding encoding)
+  {
+    if (line > lineStarts.length)
+      {
+        return sourceFile.byteLength();
+      }
+    var i = line - 1;
+    var end = ContentEnd(i);
+    if (codePointStarts[i] == null)
+      {
+        return Math.min(lineStarts[i] + character, end);
+      }
+    int result;
+    switch (encoding)
+      {
+      case Utf8 :
+        result = codePointStarts[i][CodePointIndex(i, Math.min(lineStarts[i] + character, end))];
+        break;
+      case Utf16 :
+        result = codePointStarts[i][Floor(utf16Offsets[i], character)];
+        break;
+      default:
+        result = codePointStarts[i][Math.min(character, codePointStarts[i].length - 1)];
+        break;
+      }
+    return Math.min(result, end);
+  }
+
+  /**
+   * byte offset of the line terminator of line i + 1, or the end of the
+   * file for the last line.
+   */
+  private int ContentEnd(int i)
+  {
+    if (i + 1 == lineStarts.length)
+      {
+        return sourceFile.byteLength();
+      }
+    return codePointStarts[i] == null
+      ? lineStarts[i + 1] - 1
+      : codePointStarts[i][codePointStarts[i].length - 2];
+  }
+
+  /**
+   * the byte offset of the one based line and column. A column past the
+   * end of the line continues into the following lines, the result is at
+   * most the length of the file.
+   */
+  public int BytePos(int line, int column)
+  {
+    if (line > lineStarts.length)
+      {
+        return sourceFile.byteLength();
+      }
+    var i = line - 1;
+    var codePoints = codePointStarts[i] == null
+      ? LineEnd(i) - lineStarts[i]
+      : codePointStarts[i].length - 1;
+    if (column - 1 <= codePoints)
+      {
+        return codePointStarts[i] == null
+          ? lineStarts[i] + column - 1
+          : codePointStarts[i][column - 1];
+      }
+    // rare: walk on from the end of the line
+    var result = LineEnd(i);
+    for (var k = codePoints; k < column - 1 && result < sourceFile.byteLength(); k++)
+      {
+        result += sourceFile.codePointSize(result);
+      }
+    return result;
+  }
+
+  /**
+   * index of the code point at bytePos in the non ASCII line i
+   */
+  private int CodePointIndex(int i, int bytePos)
+  {
+    return Floor(codePointStarts[i], bytePos);
+  }
+
+  /**
+   * index of the last element of the ascending starts that is less than
+   * or equal to value, 0 if there is none.
+   */
+  private static int Floor(int[] starts, int value)
+  {
+    var low = 0;
+    var high = starts.length - 1;
+    while (low < high)
+      {
+        var mid = (low + high + 1) >>> 1;
+        if (starts[mid] <= value)
+          {
+            low = mid;
+          }
+        else
+          {
+            high = mid - 1;
+          }
+      }
+    return low;
+  }
+
+}
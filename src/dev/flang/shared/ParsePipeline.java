@@ -0,0 +1,166 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class ParsePipeline
+ *
+ *---------------------------------------------------------------------*/
+
+package dev.flang.shared;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import dev.flang.shared.concurrent.UniverseLock;
+import dev.flang.util.ANY;
+import dev.flang.util.SourcePosition;
+
+/**
+ * parses documents in the background as soon as they change
+ * so that requests usually find the parse result in the parser cache.
+ *
+ * There is at most one job per document. A job that is superseded by a
+ * newer version of the document before it started is dropped, a job that
+ * is already parsing finishes the parse but skips pre-warming.
+ *
+ * Jobs are identified by the version of the document, hashing the text
+ * is left to the worker so that scheduling is cheap for the caller.
+ */
+public class ParsePipeline extends ANY
+{
+
+  private record Job(int version, CompletableFuture<ParserCacheItem> future)
+  {
+  }
+
+  /**
+   * the single worker thread parsing, parsing is not thread safe.
+   */
+  private static final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+    var thread = Executors.defaultThreadFactory().newThread(r);
+    thread.setName("fuzion-parse-pipeline");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private static final Map<URI, Job> jobs = new ConcurrentHashMap<>();
+
+  /**
+   * start parsing the text of uri at version in the background,
+   * superseding any job for another version.
+   */
+  public static void Schedule(URI uri, int version)
+  {
+    var job = new Job(version, new CompletableFuture<>());
+    var previous = jobs.put(uri, job);
+    if (previous != null && previous.version() != version)
+      {
+        previous.future().cancel(false);
+      }
+    worker.submit(() -> Run(uri, job));
+  }
+
+  /**
+   * make sure the current text of uri is being parsed,
+   * used when a request was answered from an older parse.
+   */
+  public static void Revalidate(URI uri)
+  {
+    var job = jobs.get(uri);
+    if (job == null || job.future().isDone() || !IsCurrent(uri, job))
+      {
+        Schedule(uri, SourceText.Version(uri));
+      }
+  }
+
+  private static void Run(URI uri, Job job)
+  {
+    try
+      {
+        if (job.future().isDone() || !IsCurrent(uri, job))
+          {
+            job.future().cancel(false);
+            return;
+          }
+        var item = ParserTool.Parse(uri, SourceText.ContentHash(uri));
+        if (item.isEmpty())
+          {
+            job.future().cancel(false);
+            return;
+          }
+        job.future().complete(item.get());
+        if (IsCurrent(uri, job) && UniverseLock.TryEnter(item.get().resolved()))
+          {
+            PreWarm(uri, item.get());
+          }
+      }
+    catch (Throwable e)
+      {
+        job.future().completeExceptionally(e);
+      }
+    finally
+      {
+        UniverseLock.Release();
+        jobs.remove(uri, job);
+      }
+  }
+
+  /**
+   * compute data that requests need right after a change.
+   * Skipped if other threads are working on another universe.
+   */
+  private static void PreWarm(URI uri, ParserCacheItem item)
+  {
+    item.MainSourceFile().ifPresent(sf -> LexerTool.TokensFrom(new SourcePosition(sf, 0)).count());
+    // computes the end of feature table, which walks all descendants
+    item.TopLevelFeatures(uri).findFirst().ifPresent(item::EndOfFeature);
+  }
+
+  private static boolean IsCurrent(URI uri, Job job)
+  {
+    return job.version() == SourceText.Version(uri);
+  }
+
+  /**
+   * if the text of uri at version is currently being parsed,
+   * wait for the result.
+   *
+   * @return the parse result, empty if there is no such job, it failed or
+   * the text changed before it was parsed.
+   */
+  public static Optional<ParserCacheItem> Await(URI uri, int version)
+  {
+    var job = jobs.get(uri);
+    if (job == null || job.version() != version)
+      {
+        return Optional.empty();
+      }
+    return ErrorHandling
+      .ResultOrDefault(() -> Optional.of(job.future().get()), Optional.<ParserCacheItem>empty())
+      .filter(item -> item.version() == version);
+  }
+
+}
@@ -27,47 +27,258 @@ Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
 package dev.flang.shared;
 
 import java.net.URI;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 import dev.flang.ast.AbstractFeature;
-import dev.flang.fe.FrontEnd;
+import dev.flang.ast.Types;
+import dev.flang.ast.Types.Resolved;
 import dev.flang.fe.SourceModule;
 import dev.flang.util.ANY;
+import dev.flang.util.SourceFile;
 
+/**
+ * Cache of parser results.
+ *
+ * Entries are keyed by uri and the hash of the source text. So switching
+ * between open documents or undoing changes hits the cache.
+ * Eviction happens in least recently used order once the estimated
+ * retained size of all entries exceeds PARSER_CACHE_MAX_WEIGHT.
+ * The last item of each uri that parsed without errors is kept
+ * regardless until the uri is removed, e.g. when its document is closed,
+ * so that requests can be answered from it while newer versions with
+ * errors are being typed. Items of pinned uris, like the workspace
+ * universe, are never evicted either, only removed explicitly.
+ *
+ * Every entry holds a front end that loaded the base library by itself,
+ * only the files of the base library share a single entry.
+ */
 public class ParserCache extends ANY
 {
-  private int PARSER_CACHE_MAX_SIZE = 1;
+
+  /**
+   * the maximum estimated size in bytes all cached parser results may
+   * retain together.
+   */
+  private static final long PARSER_CACHE_MAX_WEIGHT = Runtime.getRuntime().maxMemory() / 4;
+
+  private record Key(URI uri, String contentHash)
+  {
+  }
+
+  /*
+   * this map is kept in sync with key2ParserCacheItem
+   */
+  private final Map<AbstractFeature, ParserCacheItem> universe2ParserCacheItem = new ConcurrentHashMap<>();
 
   /*
-   * this map is kept in sync with sourceText2ParserCache
+   * the items by their main source file, kept in sync with key2ParserCacheItem.
+   * Source files are compared by identity.
    */
-  private HashMap<AbstractFeature, FrontEnd> universe2FrontEndMap = new HashMap<>();
+  private final Map<SourceFile, ParserCacheItem> sourceFile2ParserCacheItem =
+    Collections.synchronizedMap(new IdentityHashMap<>());
 
   // LRU-Cache holding the most recent results of parser
-  private Map<String, ParserCacheItem> sourceText2ParserCache =
-    Util.ThreadSafeLRUMap(PARSER_CACHE_MAX_SIZE, (removed) -> {
-      var frontEnd = universe2FrontEndMap.remove(removed.getValue().universe());
-      check(frontEnd != null, universe2FrontEndMap.size() <= PARSER_CACHE_MAX_SIZE);
-    });
+  private final LinkedHashMap<Key, ParserCacheItem> key2ParserCacheItem = new LinkedHashMap<>(16, .75F, true);
+
+  /*
+   * the most recent item of each uri that parsed without errors,
+   * never evicted.
+   */
+  private final Map<URI, ParserCacheItem> lastGood = new HashMap<>();
+
+  /*
+   * the uris whose items are never evicted, see Pin.
+   */
+  private final Set<URI> pinned = new HashSet<>();
+
+  /*
+   * sum of the estimated sizes of all entries in key2ParserCacheItem
+   */
+  private long weight = 0;
+
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+
+  /**
+   * is there an item for uri and contentHash?
+   * Unlike Get this does not count as an access.
+   */
+  public synchronized boolean Contains(URI uri, String contentHash)
+  {
+    return key2ParserCacheItem.containsKey(new Key(uri, contentHash));
+  }
+
+  /**
+   * the cached item for uri and contentHash, empty if there is none.
+   */
+  public synchronized Optional<ParserCacheItem> Get(URI uri, String contentHash)
+  {
+    var cached = key2ParserCacheItem.get(new Key(uri, contentHash));
+    if (cached != null)
+      {
+        hits++;
+      }
+    return Optional.ofNullable(cached);
+  }
+
+  /**
+   * the cached item for uri and contentHash, created via mappingFunction
+   * if there is none. mappingFunction runs without locking the cache, so
+   * that other threads may use the cache while parsing. If another thread
+   * added an item for the same key meanwhile, that item is returned.
+   */
+  public ParserCacheItem computeIfAbsent(URI uri, String contentHash,
+    Function<URI, ParserCacheItem> mappingFunction)
+  {
+    var cached = Get(uri, contentHash);
+    if (cached.isPresent())
+      {
+        return cached.get();
+      }
+
+    long startTime = System.nanoTime();
+
+    var parserCacheItem = mappingFunction.apply(uri);
+
+    long stopTime = System.nanoTime();
+    var elapsedTime = (long) ((stopTime - startTime) / 1E6);
+
+    var result = Put(new Key(uri, contentHash), parserCacheItem);
+
+    Context.Logger.Log("[Parsing] finished in " + elapsedTime + "ms: " + uri);
+    Context.Logger.Log("[Parsing] cache " + Stats());
+
+    return result;
+  }
+
+  /**
+   * add parserCacheItem under key unless there already is an item for key.
+   *
+   * @return the item cached under key.
+   */
+  private synchronized ParserCacheItem Put(Key key, ParserCacheItem parserCacheItem)
+  {
+    var existing = key2ParserCacheItem.get(key);
+    if (existing != null)
+      {
+        return existing;
+      }
+    misses++;
+    key2ParserCacheItem.put(key, parserCacheItem);
+    universe2ParserCacheItem.put(parserCacheItem.universe(), parserCacheItem);
+    parserCacheItem.MainSourceFile().ifPresent(sf -> sourceFile2ParserCacheItem.put(sf, parserCacheItem));
+    weight += parserCacheItem.EstimatedSize();
+    // items of unknown version are not a version of the document at uri
+    if (parserCacheItem.errors().isEmpty() && parserCacheItem.version() >= 0)
+      {
+        lastGood.put(key.uri(), parserCacheItem);
+      }
+    evict();
+
+    if (POSTCONDITIONS)
+      ensure(universe2ParserCacheItem.size() == key2ParserCacheItem.size());
+
+    return parserCacheItem;
+  }
 
-  public ParserCacheItem computeIfAbsent(URI uri, String sourceText,
-    Function<String, ParserCacheItem> mappingFunction)
+  /**
+   * remove all entries of uri regardless of their content hash
+   */
+  public synchronized void Remove(URI uri)
   {
-    var key = uri + sourceText;
-    return sourceText2ParserCache.computeIfAbsent(key, (str) -> {
-      long startTime = System.nanoTime();
+    var iterator = key2ParserCacheItem.entrySet().iterator();
+    while (iterator.hasNext())
+      {
+        var entry = iterator.next();
+        if (entry.getKey().uri().equals(uri))
+          {
+            iterator.remove();
+            universe2ParserCacheItem.remove(entry.getValue().universe());
+            entry.getValue().MainSourceFile().ifPresent(sourceFile2ParserCacheItem::remove);
+            weight -= entry.getValue().EstimatedSize();
+          }
+      }
+    lastGood.remove(uri);
+  }
 
-      var parserCacheItem = mappingFunction.apply(str);
-      universe2FrontEndMap.put(parserCacheItem.universe(), parserCacheItem.frontEnd());
+  /**
+   * never evict items of uri, they stay cached until removed via Remove.
+   */
+  public synchronized void Pin(URI uri)
+  {
+    pinned.add(uri);
+  }
 
-      long stopTime = System.nanoTime();
-      var elapsedTime = (int) ((stopTime - startTime) / 1E6);
-      Context.Logger.Log("[Parsing] finished in " + elapsedTime + "ms: " + uri);
+  /**
+   * the most recent item of uri that parsed without errors,
+   * empty if there is none.
+   */
+  public synchronized Optional<ParserCacheItem> LastGood(URI uri)
+  {
+    return Optional.ofNullable(lastGood.get(uri));
+  }
 
-      return parserCacheItem;
-    });
+  /**
+   * remove least recently used entries until the weight of the cache
+   * is below its maximum. The most recently used entry, the last good
+   * items and the items of pinned uris are never removed.
+   */
+  private void evict()
+  {
+    var iterator = key2ParserCacheItem.entrySet().iterator();
+    var remaining = key2ParserCacheItem.size();
+    while (weight > PARSER_CACHE_MAX_WEIGHT && remaining > 1)
+      {
+        var eldest = iterator.next().getValue();
+        remaining--;
+        if (lastGood.get(eldest.uri()) == eldest || pinned.contains(eldest.uri()))
+          {
+            continue;
+          }
+        iterator.remove();
+        var removed = universe2ParserCacheItem.remove(eldest.universe());
+        check(removed != null);
+        eldest.MainSourceFile().ifPresent(sourceFile2ParserCacheItem::remove);
+        weight -= eldest.EstimatedSize();
+        evictions++;
+      }
+  }
+
+  public synchronized long hits()
+  {
+    return hits;
+  }
+
+  public synchronized long misses()
+  {
+    return misses;
+  }
+
+  public synchronized long evictions()
+  {
+    return evictions;
+  }
+
+  /**
+   * human readable statistics of this cache, used for logging
+   */
+  public synchronized String Stats()
+  {
+    return "entries: " + key2ParserCacheItem.size()
+      + ", weight: " + weight / (1024 * 1024) + "MB"
+      + ", hits: " + hits
+      + ", misses: " + misses
+      + ", evictions: " + evictions;
   }
 
 
@@ -81,6 +292,43 @@ public class ParserCache extends ANY
     if (PRECONDITIONS)
       require(!TypeTool.ContainsError(f.selfType()));
     var universe = FeatureTool.Universe(f);
-    return universe2FrontEndMap.get(universe).sourceModule();
+    return universe2ParserCacheItem.get(universe).frontEnd().sourceModule();
+  }
+
+  /**
+   * the resolution context of the universe f belongs to
+   */
+  public Resolved Resolved(AbstractFeature f)
+  {
+    var item = universe2ParserCacheItem.get(FeatureTool.Universe(f));
+    // the item may have been evicted meanwhile
+    return item == null ? Types.resolved : item.resolved();
+  }
+
+  /**
+   * the item whose universe f belongs to, empty if it was evicted
+   */
+  public Optional<ParserCacheItem> ItemOf(AbstractFeature f)
+  {
+    return Optional.ofNullable(universe2ParserCacheItem.get(FeatureTool.Universe(f)));
+  }
+
+  /**
+   * the uri of the cached item whose in memory source file is sourceFile.
+   * Does not lock the cache so that it can be used while parsing.
+   */
+  public Optional<URI> UriOf(SourceFile sourceFile)
+  {
+    return ItemOf(sourceFile).map(ParserCacheItem::uri);
   }
+
+  /**
+   * the cached item whose in memory source file is sourceFile.
+   * Does not lock the cache so that it can be used while parsing.
+   */
+  public Optional<ParserCacheItem> ItemOf(SourceFile sourceFile)
+  {
+    return Optional.ofNullable(sourceFile2ParserCacheItem.get(sourceFile));
+  }
+
 }
@@ -27,7 +27,11 @@ Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
 package dev.flang.shared;
 
 import java.net.URI;
+import java.util.Map;
+import java.util.Optional;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import dev.flang.ast.AbstractFeature;
@@ -36,6 +40,8 @@ import dev.flang.fe.FrontEnd;
 import dev.flang.fe.FrontEndOptions;
 import dev.flang.util.Errors;
 import dev.flang.util.FuzionOptions;
+import dev.flang.util.SourceFile;
+import dev.flang.util.SourcePosition;
 
 /**
  * holds all artifacts of parsing that we later need
@@ -43,33 +49,190 @@ import dev.flang.util.FuzionOptions;
 public class ParserCacheItem
 {
 
+  /**
+   * rough estimate of the heap retained per byte of the module files
+   * a front end loads, i.e. the module data and the features read from it.
+   */
+  private static final long SIZE_PER_MODULE_BYTE_ESTIMATE = 8;
+
+  /**
+   * rough estimate of the heap retained per byte of parsed source text.
+   */
+  private static final long SIZE_PER_SOURCE_BYTE_ESTIMATE = 256;
+
   private final URI uri;
+
+  /**
+   * the version of the document at uri that was parsed, -1 if unknown
+   */
+  private final int version;
+
+  /**
+   * the source text that was parsed
+   */
+  private final String sourceText;
   private final FrontEndOptions frontEndOptions;
   private final FrontEnd frontEnd;
   private final TreeSet<Errors.Error> errors;
   private final TreeSet<Errors.Error> warnings;
   private final Resolved resolved;
+  private final long estimatedSize;
+
+  /**
+   * the source file the parser created for the in memory source text of uri
+   */
+  private final Optional<SourceFile> mainSourceFile;
 
-  public ParserCacheItem(URI uri, FrontEndOptions frontEndOptions, FrontEnd frontEnd,
-    TreeSet<Errors.Error> errors, TreeSet<Errors.Error> warnings, Resolved resolved)
+  /**
+   * a value computed on first use.
+   *
+   * The value is computed without holding any lock, since computing it may
+   * fork tasks that need other values of this item. If two threads compute
+   * the value at the same time, the first one to finish is published and
+   * returned to both.
+   */
+  private static final class Lazy<T>
+  {
+    private final Supplier<T> supplier;
+    private volatile T value = null;
+
+    private Lazy(Supplier<T> supplier)
+    {
+      this.supplier = supplier;
+    }
+
+    private T get()
+    {
+      var result = value;
+      if (result == null)
+        {
+          result = supplier.get();
+          synchronized (this)
+            {
+              if (value == null)
+                {
+                  value = result;
+                }
+              result = value;
+            }
+        }
+      return result;
+    }
+  }
+
+  /**
+   * the indexes of one file of this parse, computed on first use
+   */
+  private final class FileIndexes
+  {
+    /**
+     * the end of every feature declared in the file
+     */
+    private final Lazy<Map<AbstractFeature, SourcePosition>> endOfFeatures;
+
+    /**
+     * the traversal of the top level features of the file
+     */
+    private final Lazy<ASTWalker.Traversal> traversal;
+
+    /**
+     * the items of the file by position
+     */
+    private final Lazy<ASTIndex> astIndex;
+
+    /**
+     * the choice types used in the file
+     */
+    private final Lazy<ChoiceIndex> choices;
+
+    private FileIndexes(URI fileUri)
+    {
+      endOfFeatures = new Lazy<>(() -> ParserTool.EndOfFeatures(TopLevelFeatures(fileUri)));
+      traversal = new Lazy<>(() -> ASTWalker.TraversalOf(TopLevelFeatures(fileUri).toList()));
+      astIndex = new Lazy<>(() -> ASTIndex.Of(fileUri, traversal.get().Entries()));
+      choices = new Lazy<>(() -> ChoiceIndex.Of(traversal.get()
+        .Entries()
+        .map(entry -> entry.getKey())
+        .filter(item -> item instanceof AbstractFeature)
+        .map(item -> (AbstractFeature) item)));
+    }
+  }
+
+  /**
+   * the indexes of the files of this parse that were asked for. Usually
+   * just uri, but all files of the base library share one parse.
+   */
+  private final Map<URI, FileIndexes> fileIndexes = new ConcurrentHashMap<>();
+
+  /**
+   * the calls of the universe by called feature
+   */
+  private final Lazy<CallSiteIndex> callSites =
+    new Lazy<>(() -> CallSiteIndex.Of(universe()));
+
+  /**
+   * the features of the universe by name
+   */
+  private final Lazy<SymbolTable> symbols =
+    new Lazy<>(() -> new SymbolTable(universe()));
+
+  /**
+   * the declared features of the features of this parse
+   */
+  private final Lazy<DeclaredFeatureTable> declaredFeatures =
+    new Lazy<>(() -> new DeclaredFeatureTable(frontEnd().sourceModule()));
+
+  public ParserCacheItem(URI uri, int version, String sourceText, FrontEndOptions frontEndOptions,
+    FrontEnd frontEnd, TreeSet<Errors.Error> errors, TreeSet<Errors.Error> warnings, Resolved resolved,
+    Optional<SourceFile> mainSourceFile, long estimatedSize)
   {
     this.uri = uri;
+    this.version = version;
+    this.sourceText = sourceText;
     this.frontEndOptions = frontEndOptions;
     this.frontEnd = frontEnd;
     this.errors = errors;
     this.warnings = warnings;
     this.resolved = resolved;
+    this.estimatedSize = estimatedSize;
+    this.mainSourceFile = mainSourceFile;
   }
 
   /**
-   * @param uri
-   * @return top level feature in source text
+   * estimated number of bytes retained by a parse that loaded
+   * moduleBytes bytes of module files and parsed sourceBytes bytes
+   * of source text.
    */
-  public Stream<AbstractFeature> TopLevelFeatures()
+  public static long EstimatedSize(long moduleBytes, long sourceBytes)
+  {
+    return SIZE_PER_MODULE_BYTE_ESTIMATE * moduleBytes + SIZE_PER_SOURCE_BYTE_ESTIMATE * sourceBytes;
+  }
+
+  /**
+   * @param fileUri
+   * @return top level feature in the file at fileUri
+   */
+  public Stream<AbstractFeature> TopLevelFeatures(URI fileUri)
   {
     return ParserTool.DeclaredFeatures(resolved.universe)
       // feature is in file
-      .filter(f -> ParserTool.getUri(f.pos()).equals(uri));
+      .filter(f -> ParserTool.getUri(f.pos()).equals(fileUri));
+  }
+
+  private FileIndexes IndexesOf(URI fileUri)
+  {
+    return fileIndexes.computeIfAbsent(fileUri, FileIndexes::new);
+  }
+
+  /**
+   * is the file at fileUri one of the files this item was parsed for, i.e.
+   * the file at uri or, if uri is a directory like the one of the base
+   * library, a file in it?
+   */
+  private boolean Covers(URI fileUri)
+  {
+    var directory = uri.toString().endsWith("/") ? uri.toString() : uri + "/";
+    return fileUri.equals(uri) || fileUri.toString().startsWith(directory);
   }
 
   public TreeSet<Errors.Error> warnings()
@@ -97,9 +260,118 @@ public class ParserCacheItem
     return frontEnd;
   }
 
+  public URI uri()
+  {
+    return uri;
+  }
+
+  public int version()
+  {
+    return version;
+  }
+
+  public String sourceText()
+  {
+    return sourceText;
+  }
+
+  public Optional<SourceFile> MainSourceFile()
+  {
+    return mainSourceFile;
+  }
+
+  /**
+   * is sourceFile the in memory source file that was parsed for this item?
+   */
+  public boolean IsMainSourceFile(SourceFile sourceFile)
+  {
+    return mainSourceFile.filter(sf -> sf == sourceFile).isPresent();
+  }
+
+  /**
+   * the end of feature if it is declared in one of the files this item
+   * was parsed for
+   */
+  public Optional<SourcePosition> EndOfFeature(AbstractFeature feature)
+  {
+    var fileUri = ParserTool.getUri(feature.pos());
+    return Covers(fileUri)
+      ? Optional.ofNullable(IndexesOf(fileUri).endOfFeatures.get().get(feature))
+      : Optional.empty();
+  }
+
+  /**
+   * the traversal of the top level features of the file at fileUri
+   */
+  public ASTWalker.Traversal Traversal(URI fileUri)
+  {
+    return IndexesOf(fileUri).traversal.get();
+  }
+
+  /**
+   * the traversal of the file feature is declared in, empty if that is not
+   * one of the files this item was parsed for
+   */
+  public Optional<ASTWalker.Traversal> TraversalOf(AbstractFeature feature)
+  {
+    var fileUri = ParserTool.getUri(feature.pos());
+    return Covers(fileUri)
+      ? Optional.of(Traversal(fileUri))
+      : Optional.empty();
+  }
+
+  /**
+   * the AST items of the file at fileUri by position
+   */
+  public ASTIndex ASTIndex(URI fileUri)
+  {
+    return IndexesOf(fileUri).astIndex.get();
+  }
+
+  /**
+   * the choice types used in the file at fileUri by their generics
+   */
+  public ChoiceIndex Choices(URI fileUri)
+  {
+    return IndexesOf(fileUri).choices.get();
+  }
+
+  /**
+   * the calls of the universe by called feature
+   */
+  public CallSiteIndex CallSites()
+  {
+    return callSites.get();
+  }
+
+  /**
+   * the features of the universe by name
+   */
+  public SymbolTable Symbols()
+  {
+    return symbols.get();
+  }
+
+  /**
+   * the declared features of the features of this parse
+   */
+  public DeclaredFeatureTable DeclaredFeatures()
+  {
+    return declaredFeatures.get();
+  }
+
   public AbstractFeature universe()
   {
     return resolved.universe;
   }
 
+  /**
+   * estimated number of bytes retained by this item,
+   * used for weighing entries in the parser cache.
+   */
+  public long EstimatedSize()
+  {
+    return estimatedSize;
+  }
+
 }
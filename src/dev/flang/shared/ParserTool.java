@@ -26,12 +26,17 @@ Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
 
 package dev.flang.shared;
 
-import java.io.File;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -57,14 +62,16 @@ import dev.flang.ast.Match;
 import dev.flang.ast.Tag;
 import dev.flang.ast.This;
 import dev.flang.ast.Types;
-import dev.flang.ast.Visi;
+import dev.flang.ast.Types.Resolved;
 import dev.flang.be.interpreter.Interpreter;
 import dev.flang.fe.FrontEnd;
 import dev.flang.fe.FrontEndOptions;
-import dev.flang.fe.LibraryFeature;
+import dev.flang.parser.Lexer;
+import dev.flang.shared.concurrent.UniverseLock;
 import dev.flang.util.ANY;
 import dev.flang.util.Errors;
 import dev.flang.util.FuzionConstants;
+import dev.flang.util.SourceFile;
 import dev.flang.util.SourcePosition;
 
 /**
@@ -76,75 +83,401 @@ public class ParserTool extends ANY
 {
 
   /**
-   * maps temporary files which are fed to the parser to their original uri.
+   * size of the cache for end of feature calculations of features that are
+   * not declared in the source text of a parser cache item, e.g. features
+   * of the base library.
    */
-  // NYI fix memory leak
-  private static TreeMap<String, URI> tempFile2Uri = new TreeMap<>();
-
-  private static final int END_OF_FEATURE_CACHE_MAX_SIZE = 1;
+  private static final int END_OF_FEATURE_CACHE_MAX_SIZE = 64;
 
   private static List<String> JavaModules = List.<String>of();
 
-  public static void SetJavaModules(List<String> javaModules)
+  public static synchronized void SetJavaModules(List<String> javaModules)
   {
     JavaModules = javaModules;
+    baseLibraryHash = null;
+    moduleBytes = null;
   }
 
+  /**
+   * hash of the module files of the base library and the java modules,
+   * null until computed.
+   */
+  private static String baseLibraryHash = null;
+
+  /**
+   * total size of the module files of the base library and the java modules,
+   * null until computed.
+   */
+  private static Long moduleBytes = null;
+
   private static ParserCache parserCache = new ParserCache();
 
+  /**
+   * the source text parsed for files of the base library. The result is
+   * a universe containing just the base library and the java modules, it
+   * is shared by all files of the base library.
+   */
+  private static final String BASE_LIBRARY_SOURCE = "dummyFeature is";
+
   /**
    * LRU-Cache holding end of feature calculations
    */
   private static final Map<AbstractFeature, SourcePosition> EndOfFeatureCache =
     Util.ThreadSafeLRUMap(END_OF_FEATURE_CACHE_MAX_SIZE, null);
 
+  /**
+   * the policy of the request running in a thread and the parse results
+   * it was served so far, see Serve.
+   */
+  private record ServeScope(ServePolicy policy, Map<URI, ParserCacheItem> served)
+  {
+  }
+
+  private static final ThreadLocal<ServeScope> serveScope = new ThreadLocal<>();
+
   /**
    * NYI in the case of uri to stdlib  we need context
+   *
+   * Requests run via Serve with policy LastGood may get the parse of an
+   * older version of the text, see ToServed and CurrentLine.
+   *
+   * The current thread enters the universe of the result, see UniverseLock.
+   *
    * @param uri
    * @return ParserCacheItem, empty if user starts in stdlib file and no record present yet.
    */
-  private synchronized static ParserCacheItem getParserCacheItem(URI uri)
+  private static ParserCacheItem getParserCacheItem(URI uri)
+  {
+    var scope = serveScope.get();
+    if (scope == null || scope.policy() == ServePolicy.Current || Util.IsStdLib(uri))
+      {
+        return CurrentParserCacheItem(uri);
+      }
+    var served = scope.served().get(uri);
+    if (served == null)
+      {
+        served = LastGood(uri).orElseGet(() -> CurrentParserCacheItem(uri));
+        scope.served().put(uri, served);
+      }
+    UniverseLock.Enter(served.resolved());
+    return served;
+  }
+
+  /**
+   * the parse result of the current text of uri.
+   *
+   * The current thread enters the universe of the result, see UniverseLock.
+   */
+  private static ParserCacheItem CurrentParserCacheItem(URI uri)
   {
-    var sourceText = SourceText.getText(uri);
-    var result = parserCache.computeIfAbsent(uri, sourceText, key -> createParserCacheItem(uri));
-    // NYI hack! Without this the test RegressionRenameMandelbrotImage fails
-    // when running all tests
-    Types.resolved = result.resolved();
+    var isStdLib = Util.IsStdLib(uri);
+    // read before the text, see Parse
+    var version = SourceText.Version(uri);
+    var contentHash = isStdLib ? BaseLibraryHash() : SourceText.ContentHash(uri);
+    var result = parserCache
+      .Get(isStdLib ? BaseLibraryUri() : uri, contentHash)
+      .or(() -> {
+        // let other threads work while we wait for the parse
+        UniverseLock.Release();
+        // do not parse again what the parse pipeline is parsing right now
+        return ParsePipeline.Await(uri, version);
+      })
+      .or(() -> Parse(uri, contentHash));
+    if (result.isEmpty())
+      {
+        // text changed before parsing started, get the current text
+        return CurrentParserCacheItem(uri);
+      }
+    UniverseLock.Enter(result.get().resolved());
+    return result.get();
+  }
+
+  /**
+   * run request in the current thread with policy.
+   * All queries of request for a document are answered from the same parse.
+   */
+  public static <T> T Serve(ServePolicy policy, Supplier<T> request)
+  {
+    var previous = serveScope.get();
+    serveScope.set(new ServeScope(policy, new HashMap<>()));
+    try
+      {
+        return request.get();
+      }
+    finally
+      {
+        serveScope.set(previous);
+      }
+  }
+
+  /**
+   * the last parse of uri without errors if the current text of uri is not
+   * parsed yet and the lines of that parse can be mapped to the current text.
+   * In this case the current text is parsed in the background.
+   */
+  private static Optional<ParserCacheItem> LastGood(URI uri)
+  {
+    if (IsParsed(uri))
+      {
+        return Optional.empty();
+      }
+    var result = parserCache
+      .LastGood(uri)
+      .filter(item -> item.MainSourceFile().isPresent() && SourceText.CanMapLines(uri, item.version()));
+    if (result.isPresent())
+      {
+        ParsePipeline.Revalidate(uri);
+      }
     return result;
   }
 
-  private static ParserCacheItem createParserCacheItem(URI uri)
+  /**
+   * pos, a position in the current text of its document, mapped to the
+   * parse that answers the request running in the current thread.
+   *
+   * @return the mapped position, empty if the line of pos was edited since
+   * that parse.
+   */
+  public static Optional<SourcePosition> ToServed(SourcePosition pos)
   {
-    var frontEndOptions = FrontEndOptions(uri);
+    var uri = getUri(pos);
+    var scope = serveScope.get();
+    if (scope == null || scope.policy() == ServePolicy.Current || Util.IsStdLib(uri))
+      {
+        return Optional.of(pos);
+      }
+    var item = getParserCacheItem(uri);
+    var version = SourceText.Version(uri);
+    if (item.version() == version || item.MainSourceFile().isEmpty())
+      {
+        return Optional.of(pos);
+      }
+    var sourceFile = item.MainSourceFile().get();
+    return SourceText
+      .MapLine(uri, pos.line(), version, item.version())
+      .map(line -> SourcePositionTool.ByLineColumn(sourceFile, line, pos.column()));
+  }
+
+  /**
+   * the line of pos in the current text of its document.
+   * Differs from pos.line() if pos is in a parse of an older version.
+   *
+   * @return the line, empty if the line of pos was edited since that parse.
+   */
+  public static Optional<Integer> CurrentLine(SourcePosition pos)
+  {
+    var item = parserCache.ItemOf(pos._sourceFile);
+    if (item.isEmpty() || item.get().version() < 0)
+      {
+        return Optional.of(pos.line());
+      }
+    var version = SourceText.Version(item.get().uri());
+    return item.get().version() == version
+      ? Optional.of(pos.line())
+      : SourceText.MapLine(item.get().uri(), pos.line(), item.get().version(), version);
+  }
+
+  /**
+   * the text that was parsed into sourceFile, empty if sourceFile is not
+   * the in memory source file of a cached parse.
+   */
+  static Optional<String> TextOf(SourceFile sourceFile)
+  {
+    return parserCache
+      .ItemOf(sourceFile)
+      .map(ParserCacheItem::sourceText);
+  }
+
+  /**
+   * is there a parse result for the current text of uri?
+   */
+  public static boolean IsParsed(URI uri)
+  {
+    return Util.IsStdLib(uri)
+      ? parserCache.Contains(BaseLibraryUri(), BaseLibraryHash())
+      : parserCache.Contains(uri, SourceText.ContentHash(uri));
+  }
+
+  /**
+   * get the parse result of the text of uri with contentHash
+   * from the cache or parse it.
+   *
+   * @return the parse result, empty if the text of uri no longer has contentHash.
+   */
+  static Optional<ParserCacheItem> Parse(URI uri, String contentHash)
+  {
+    if (Util.IsStdLib(uri))
+      {
+        return Optional.of(UniverseLock.Exclusive(() -> parserCache.computeIfAbsent(BaseLibraryUri(), BaseLibraryHash(),
+          u -> createParserCacheItem(u, -1, BASE_LIBRARY_SOURCE, List.of()))));
+      }
+    // read before the text: if the text changes and changes back in between,
+    // the version is older but its text still the same.
+    var version = SourceText.Version(uri);
+    return SourceText
+      .getText(uri, contentHash)
+      .map(text -> UniverseLock.Exclusive(() -> parserCache.computeIfAbsent(uri, contentHash,
+        u -> createParserCacheItem(u, version, text, List.of()))));
+  }
+
+  /**
+   * parse text as if it was the text of uri, without changing the text of uri.
+   * The result is never served as parse of uri, see ParserCache.
+   *
+   * The current thread enters the universe of the result, see UniverseLock.
+   */
+  static ParserCacheItem ParseText(URI uri, String text)
+  {
+    var result = UniverseLock.Exclusive(() -> parserCache.computeIfAbsent(uri, Util.ContentHash(text),
+      u -> createParserCacheItem(u, -1, text, List.of())));
+    UniverseLock.Enter(result.resolved());
+    return result;
+  }
+
+  /**
+   * the uri all files of the base library share their parse result under
+   */
+  private static URI BaseLibraryUri()
+  {
+    return SourceText.FuzionHome.resolve("lib").toUri();
+  }
+
+  /**
+   * hash identifying the base library and the java modules sources are
+   * parsed with. Computed from the contents of their module files once, so
+   * that it changes when the Fuzion installation at FuzionHome is updated.
+   */
+  static synchronized String BaseLibraryHash()
+  {
+    if (baseLibraryHash == null)
+      {
+        var moduleHashes = ModuleFiles()
+          .map(path -> path + ":" + ErrorHandling.ResultOrDefault(() -> Util.ContentHash(Files.readAllBytes(path)), ""))
+          .collect(Collectors.joining(System.lineSeparator()));
+        baseLibraryHash = Util.ContentHash(BASE_LIBRARY_SOURCE + moduleHashes);
+      }
+    return baseLibraryHash;
+  }
+
+  /**
+   * total size of the module files of the base library and the java modules.
+   */
+  private static synchronized long ModuleBytes()
+  {
+    if (moduleBytes == null)
+      {
+        moduleBytes = ModuleFiles()
+          .mapToLong(path -> ErrorHandling.ResultOrDefault(() -> Files.size(path), 0L))
+          .sum();
+      }
+    return moduleBytes;
+  }
+
+  /**
+   * the module files of the base library and the java modules
+   */
+  private static Stream<Path> ModuleFiles()
+  {
+    return Stream
+      .concat(Stream.of("base"), JavaModules.stream())
+      .map(name -> SourceText.FuzionHome.resolve("modules").resolve(name + ".fum"));
+  }
+
+  /**
+   * size of sourceText plus the size of all source files in sourceDirs
+   */
+  private static long SourceBytes(String sourceText, List<Path> sourceDirs)
+  {
+    return sourceText.getBytes(StandardCharsets.UTF_8).length
+      + sourceDirs
+        .stream()
+        .mapToLong(dir -> ErrorHandling.ResultOrDefault(() -> {
+          try (var walk = Files.walk(dir))
+            {
+              return walk
+                .filter(p -> Files.isRegularFile(p) && p.toString().endsWith(".fz"))
+                .mapToLong(p -> ErrorHandling.ResultOrDefault(() -> Files.size(p), 0L))
+                .sum();
+            }
+        }, 0L))
+        .sum();
+  }
+
+  /**
+   * parse all source files in sourceDirs into one universe.
+   * The result is cached under key and contentHash and is never evicted,
+   * it stays until removed via RemoveFromCache.
+   */
+  static ParserCacheItem SourceDirsItem(URI key, String contentHash, List<Path> sourceDirs)
+  {
+    parserCache.Pin(key);
+    var result = UniverseLock.Exclusive(() -> parserCache.computeIfAbsent(key, contentHash,
+      u -> createParserCacheItem(u, -1, BASE_LIBRARY_SOURCE, sourceDirs)));
+    UniverseLock.Enter(result.resolved());
+    return result;
+  }
+
+  /**
+   * the resolution context of the universe feature belongs to
+   */
+  public static Resolved Resolved(AbstractFeature feature)
+  {
+    return parserCache.Resolved(feature);
+  }
+
+  /**
+   * remove all cached parse results of uri
+   */
+  static void RemoveFromCache(URI uri)
+  {
+    parserCache.Remove(uri);
+  }
+
+  private static ParserCacheItem createParserCacheItem(URI uri, int version, String sourceText, List<Path> sourceDirs)
+  {
+    var estimatedSize = ParserCacheItem.EstimatedSize(ModuleBytes(), SourceBytes(sourceText, sourceDirs));
+    var frontEndOptions = FrontEndOptions(sourceText, sourceDirs);
     var frontEnd = new FrontEnd(frontEndOptions);
     var errors = Errors.errors();
     var warnings = Errors.warnings();
 
-    return new ParserCacheItem(uri, frontEndOptions, frontEnd, errors, warnings, Types.resolved);
+    return new ParserCacheItem(uri, version, sourceText, frontEndOptions, frontEnd, errors, warnings,
+      Types.resolved, MainSourceFile(frontEnd, Types.resolved.universe, errors, warnings), estimatedSize);
+  }
+
+  /**
+   * the source file the parser created for the source text
+   * that we passed in memory, empty if no feature or error refers to it.
+   */
+  private static Optional<SourceFile> MainSourceFile(FrontEnd frontEnd, AbstractFeature universe,
+    TreeSet<Errors.Error> errors, TreeSet<Errors.Error> warnings)
+  {
+    return Stream.concat(
+        frontEnd.sourceModule().declaredFeatures(universe).values().stream().map(f -> f.pos()),
+        Stream.concat(errors.stream(), warnings.stream()).map(e -> e.pos))
+      .map(pos -> pos._sourceFile)
+      .filter(sf -> sf._fileName.equals(SourceFile.COMMAND_LINE_DEFINED))
+      .findFirst();
   }
 
-  private static FrontEndOptions FrontEndOptions(URI uri)
+  private static FrontEndOptions FrontEndOptions(String sourceText, List<Path> sourceDirs)
   {
-    File tempFile = ParserTool.toTempFile(uri);
-    // this is too slow
-    // var isStdLib = Util.IsStdLib(uri);
-    var isStdLib = false;
     var frontEndOptions =
       new FrontEndOptions(
         /* verbose                 */ 0,
         /* fuzionHome              */ SourceText.FuzionHome,
-        /* loadBaseLib             */ !isStdLib,
+        /* loadBaseLib             */ true,
         /* eraseInternalNamesInLib */ false,
-        /* modules                 */ isStdLib ? new dev.flang.util.List<String>() : new dev.flang.util.List<String>(JavaModules.iterator()),
+        /* modules                 */ new dev.flang.util.List<String>(JavaModules.iterator()),
         /* moduleDirs              */ new dev.flang.util.List<String>(),
         /* dumpModules             */ new dev.flang.util.List<String>(),
         /* fuzionDebugLevel        */ 1,
         /* fuzionSafety            */ true,
         /* enableUnsafeIntrinsics  */ true,
-        /* sourceDirs              */ isStdLib ? new dev.flang.util.List<String>(uri.getRawPath().substring(0,uri.getRawPath().indexOf("/lib/")) + "/lib") : new dev.flang.util.List<String>(),
+        /* sourceDirs              */ new dev.flang.util.List<String>(sourceDirs.stream().map(Path::toString).iterator()),
         /* readStdin               */ false,
-        /* executeCode             */ null,
-        /* main                    */ isStdLib ? null : tempFile.getAbsolutePath(),
+        /* executeCode             */ sourceText.getBytes(StandardCharsets.UTF_8),
+        /* main                    */ null,
         /* moduleName              */ "main",
         /* loadSources             */ true,
         /* needsEscapeAnalysis     */ false,
@@ -161,34 +494,24 @@ public class ParserTool extends ANY
   }
 
   /**
-   * get original URI of given sourcePosition if present
-   * necessary because we are feeding the parser temporary files
+   * get original URI of given sourcePosition.
+   * Source texts are fed to the parser in memory, so positions
+   * in a parsed text are mapped back via the parser cache.
    * @param sourcePosition
    * @return
    */
   public static URI getUri(SourcePosition sourcePosition)
   {
-    var result = tempFile2Uri.get(sourcePosition._sourceFile._fileName.toString());
-    if (result != null)
-      {
-        return result;
-      }
     return SourceText.UriOf(sourcePosition);
   }
 
-  private static File toTempFile(URI uri)
+  /**
+   * the uri of the document that was parsed into sourceFile,
+   * empty if sourceFile is not an in memory source file of a cached parse.
+   */
+  static Optional<URI> UriOf(SourceFile sourceFile)
   {
-    var sourceText = Util.IsStdLib(uri) ? "dummyFeature is": SourceText.getText(uri);
-    File sourceFile = IO.writeToTempFile(sourceText);
-    try
-      {
-        tempFile2Uri.put(sourceFile.toPath().toString(), uri);
-      }
-    catch (Exception e)
-      {
-        ErrorHandling.WriteStackTrace(e);
-      }
-    return sourceFile;
+    return parserCache.UriOf(sourceFile);
   }
 
   public static AbstractFeature Universe(URI uri)
@@ -207,16 +530,14 @@ public class ParserTool extends ANY
       {
         return Stream.empty();
       }
-    return parserCache.SourceModule(f)
-      .declaredFeatures(f)
-      .values()
-      .stream()
-      .filter(af -> {
-        var isFromModule = (af instanceof LibraryFeature);
-        return !isFromModule || af.visibility().eraseTypeVisibility() == Visi.PUB;
-      })
-      .filter(feat -> includeInternalFeatures
-        || !FeatureTool.IsInternal(feat));
+    return parserCache
+      .ItemOf(f)
+      .map(item -> item
+        .DeclaredFeatures()
+        .Of(f)
+        .Features(DeclaredFeatureTable.PUBLIC, includeInternalFeatures ? 0 : DeclaredFeatureTable.INTERNAL))
+      // an empty result would silently drop the members of f
+      .orElseThrow(() -> new IllegalStateException("parse of " + f.qualifiedName() + " is no longer cached"));
   }
 
   /**
@@ -235,70 +556,125 @@ public class ParserTool extends ANY
       }
     // NYI replace by real end of feature once we have this information in the
     // AST
-    // NOTE: since this is a very expensive calculation and frequently used we
-    // cache this
-    return EndOfFeatureCache.computeIfAbsent(feature, af -> {
-      if (FeatureTool.IsArgument(af))
-        {
-          return LexerTool.EndOfToken(af.pos());
-        }
-      if (!af.isUniverse() && FeatureTool.IsOfLastFeature(af))
-        {
-          return new SourcePosition(af.pos()._sourceFile, af.pos()._sourceFile.byteLength());
-        }
+    // NOTE: since this is a very expensive calculation and frequently used
+    // the end of all features of a parsed source text is computed at once
+    // and kept with the parser cache item.
+    return parserCache
+      .ItemOf(feature)
+      .flatMap(item -> item.EndOfFeature(feature))
+      .orElseGet(() -> EndOfFeatureCache.computeIfAbsent(feature,
+        af -> EndOfFeature(af, !af.isUniverse() && FeatureTool.IsOfLastFeature(af))));
+  }
 
-      var visitor = new FeatureVisitor() {
-        public SourcePosition lastPos = SourcePosition.notAvailable;
-        private void FoundPos(SourcePosition visitedPos)
-        {
-          if (visitedPos != null)
-            {
-              lastPos = SourcePositionTool.Compare(lastPos, visitedPos) >=0 ? lastPos : visitedPos;
-            }
-        }
-        @Override public void         action      (AbstractAssign a) { FoundPos(a.pos()); }
-        @Override public void         actionBefore(Block          b) { FoundPos(b.pos()); }
-        @Override public void         actionAfter (Block          b) { FoundPos(b.pos()); }
-        @Override public void         action      (AbstractCall   c) { FoundPos(c.pos()); }
-        @Override public Expr         action      (Call           c) { FoundPos(c.pos()); return c; }
-        @Override public Expr         action      (DotType        d) { FoundPos(d.pos()); return d; }
-        @Override public void         actionBefore(AbstractCase   c) { FoundPos(c.pos()); }
-        @Override public void         actionAfter (AbstractCase   c) { FoundPos(c.pos()); }
-        @Override public void         action      (Cond           c) { FoundPos(c.cond.pos()); }
-        @Override public Expr         action      (Destructure    d) { FoundPos(d.pos()); return d; }
-        @Override public Expr         action      (Feature        f, AbstractFeature outer) { FoundPos(f.pos()); return f; }
-        @Override public Expr         action      (Function       f) { FoundPos(f.pos()); return f; }
-        @Override public Expr         action      (If             i) { FoundPos(i.pos()); return i; }
-        @Override public void         action      (Impl           i) { FoundPos(i.pos); }
-        @Override public Expr         action      (InlineArray    i) { FoundPos(i.pos()); return i; }
-        @Override public void         action      (AbstractMatch  m) { FoundPos(m.pos()); }
-        @Override public void         action      (Tag            b) { FoundPos(b.pos()); }
-        @Override public Expr         action      (This           t) { FoundPos(t.pos()); return t; }
-        @Override public AbstractType action      (AbstractType   t) { FoundPos(t.declarationPos()); return t; }
-      };
-      if (af instanceof Feature f)
-        {
-          f.visit(visitor);
-        }
-      af.visitCode(visitor);
+  /**
+   * the end of all features declared in topLevelFeatures, including the top
+   * level features themselves.
+   *
+   * Whether a feature is the last one at its level is decided in one sweep
+   * over the descendants of its top level feature instead of scanning them
+   * again for every feature.
+   *
+   * Result fields are not included, they end where their outer feature ends.
+   */
+  static Map<AbstractFeature, SourcePosition> EndOfFeatures(Stream<AbstractFeature> topLevelFeatures)
+  {
+    var result = new IdentityHashMap<AbstractFeature, SourcePosition>();
+    topLevelFeatures
+      .forEach(tlf -> {
+        var features = FeatureTool
+          .SelfAndDescendants(tlf)
+          .filter(f -> !f.pos().isBuiltIn())
+          .toList();
+        var lastFeatures = FeatureTool.LastFeatures(features);
+        features
+          .stream()
+          .filter(f -> !f.featureName().baseName().equals(FuzionConstants.RESULT_NAME))
+          .forEach(f -> {
+            // features whose end can not be computed are left to endOfFeature
+            var end = ErrorHandling.ResultOrDefault(() -> EndOfFeature(f, lastFeatures.contains(f)), null);
+            if (end != null)
+              {
+                result.put(f, end);
+              }
+          });
+      });
+    return result;
+  }
+
+  /**
+   * compute the end of af
+   *
+   * @param af
+   * @param isOfLastFeature true iff there are no other features at same or lesser level after af
+   */
+  private static SourcePosition EndOfFeature(AbstractFeature af, boolean isOfLastFeature)
+  {
+    if (FeatureTool.IsArgument(af))
+      {
+        return LexerTool.EndOfToken(af.pos());
+      }
+    if (!af.isUniverse() && isOfLastFeature)
+      {
+        return new SourcePosition(af.pos()._sourceFile, af.pos()._sourceFile.byteLength());
+      }
 
-      var result = visitor.lastPos.equals(SourcePosition.notAvailable) ? af.pos() : visitor.lastPos;
+    var visitor = new FeatureVisitor() {
+      public SourcePosition lastPos = SourcePosition.notAvailable;
+      private void FoundPos(SourcePosition visitedPos)
+      {
+        if (visitedPos != null)
+          {
+            lastPos = SourcePositionTool.Compare(lastPos, visitedPos) >=0 ? lastPos : visitedPos;
+          }
+      }
+      @Override public void         action      (AbstractAssign a) { FoundPos(a.pos()); }
+      @Override public void         actionBefore(Block          b) { FoundPos(b.pos()); }
+      @Override public void         actionAfter (Block          b) { FoundPos(b.pos()); }
+      @Override public void         action      (AbstractCall   c) { FoundPos(c.pos()); }
+      @Override public Expr         action      (Call           c) { FoundPos(c.pos()); return c; }
+      @Override public Expr         action      (DotType        d) { FoundPos(d.pos()); return d; }
+      @Override public void         actionBefore(AbstractCase   c) { FoundPos(c.pos()); }
+      @Override public void         actionAfter (AbstractCase   c) { FoundPos(c.pos()); }
+      @Override public void         action      (Cond           c) { FoundPos(c.cond.pos()); }
+      @Override public Expr         action      (Destructure    d) { FoundPos(d.pos()); return d; }
+      @Override public Expr         action      (Feature        f, AbstractFeature outer) { FoundPos(f.pos()); return f; }
+      @Override public Expr         action      (Function       f) { FoundPos(f.pos()); return f; }
+      @Override public Expr         action      (If             i) { FoundPos(i.pos()); return i; }
+      @Override public void         action      (Impl           i) { FoundPos(i.pos); }
+      @Override public Expr         action      (InlineArray    i) { FoundPos(i.pos()); return i; }
+      @Override public void         action      (AbstractMatch  m) { FoundPos(m.pos()); }
+      @Override public void         action      (Tag            b) { FoundPos(b.pos()); }
+      @Override public Expr         action      (This           t) { FoundPos(t.pos()); return t; }
+      @Override public AbstractType action      (AbstractType   t) { FoundPos(t.declarationPos()); return t; }
+    };
+    if (af instanceof Feature f)
+      {
+        f.visit(visitor);
+      }
+    af.visitCode(visitor);
 
-      result = (SourcePosition) LexerTool
-          .TokensFrom(result)
-          .skip(1)
-          // NYI do we need to sometimes consider right brackets as well?
-          .filter(t -> !(t.IsWhitespace()))
-          // t is the first token not belonging to feature
-          .map(t -> LexerTool.GoLeft(t.start()))
-          .findFirst()
-          .orElse(result);
+    var result = visitor.lastPos.equals(SourcePosition.notAvailable) ? af.pos() : visitor.lastPos;
 
-      if (POSTCONDITIONS)
-        ensure(af.pos().line() < result.line()
-          || (af.pos().line() == result.line() && af.pos().column() < result.column()));
-      return result;
-    });
+    var cursor = LexerTool.CursorAt(result);
+    if (cursor.Valid())
+      {
+        cursor.Next();
+      }
+    // NYI do we need to sometimes consider right brackets as well?
+    while (cursor.Valid() && cursor.Token() == Lexer.Token.t_ws)
+      {
+        cursor.Next();
+      }
+    if (cursor.Valid())
+      {
+        // the first token not belonging to feature
+        result = LexerTool.GoLeft(cursor.Start());
+      }
+
+    if (POSTCONDITIONS)
+      ensure(af.pos().line() < result.line()
+        || (af.pos().line() == result.line() && af.pos().column() < result.column()));
+    return result;
   }
 
   public static Stream<Errors.Error> Warnings(URI uri)
@@ -313,7 +689,69 @@ public class ParserTool extends ANY
 
   public static Stream<AbstractFeature> TopLevelFeatures(URI uri)
   {
-    return getParserCacheItem(uri).TopLevelFeatures();
+    return getParserCacheItem(uri).TopLevelFeatures(uri);
+  }
+
+  /**
+   * the traversal of the top level features of the parse of uri
+   */
+  static ASTWalker.Traversal Traversal(URI uri)
+  {
+    return getParserCacheItem(uri).Traversal(uri);
+  }
+
+  /**
+   * the traversal of the parse feature belongs to, empty if the parse
+   * is not cached.
+   */
+  static Optional<ASTWalker.Traversal> CachedTraversal(AbstractFeature feature)
+  {
+    return parserCache.ItemOf(feature).flatMap(item -> item.TraversalOf(feature));
+  }
+
+  /**
+   * the call site index of the parse feature belongs to, empty if the
+   * parse is not cached.
+   */
+  static Optional<CallSiteIndex> CallSites(AbstractFeature feature)
+  {
+    return parserCache.ItemOf(feature).map(ParserCacheItem::CallSites);
+  }
+
+  /**
+   * the choice types used in the source text of uri by their generics
+   */
+  public static ChoiceIndex Choices(URI uri)
+  {
+    return getParserCacheItem(uri).Choices(uri);
+  }
+
+  /**
+   * the symbol table of the parse of uri
+   */
+  public static SymbolTable Symbols(URI uri)
+  {
+    return getParserCacheItem(uri).Symbols();
+  }
+
+  /**
+   * the symbol table of the parse feature belongs to, a new one if the
+   * parse is not cached.
+   */
+  public static SymbolTable Symbols(AbstractFeature feature)
+  {
+    return parserCache
+      .ItemOf(feature)
+      .map(ParserCacheItem::Symbols)
+      .orElseGet(() -> new SymbolTable(FeatureTool.Universe(feature)));
+  }
+
+  /**
+   * the AST items of the parse of uri by position
+   */
+  public static ASTIndex ASTIndex(URI uri)
+  {
+    return getParserCacheItem(uri).ASTIndex(uri);
   }
 
 }
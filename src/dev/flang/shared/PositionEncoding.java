@@ -0,0 +1,108 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class PositionEncoding
+ *
+ *---------------------------------------------------------------------*/
+
+package dev.flang.shared;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * the unit the character offsets of positions exchanged with the client
+ * are counted in, negotiated in the initialize handshake.
+ */
+public enum PositionEncoding
+{
+  /**
+   * bytes, the unit source files are indexed in, so conversion is free.
+   */
+  Utf8("utf-8"),
+
+  /**
+   * UTF-16 code units, the default every client has to support.
+   */
+  Utf16("utf-16"),
+
+  /**
+   * code points.
+   */
+  Utf32("utf-32");
+
+  /**
+   * the name of the encoding in the language server protocol
+   */
+  public final String kind;
+
+  private PositionEncoding(String kind)
+  {
+    this.kind = kind;
+  }
+
+  /**
+   * the encoding to use for a client that supports clientEncodings,
+   * UTF-8 if possible, UTF-16 otherwise.
+   *
+   * @param clientEncodings the encodings the client supports, may be null.
+   */
+  public static PositionEncoding Negotiate(List<String> clientEncodings)
+  {
+    return clientEncodings != null && clientEncodings.contains(Utf8.kind)
+      ? Utf8
+      : Utf16;
+  }
+
+  /**
+   * the length of text in this encoding
+   */
+  public int Length(String text)
+  {
+    switch (this)
+      {
+      case Utf8 :
+        return text.getBytes(StandardCharsets.UTF_8).length;
+      case Utf16 :
+        return text.length();
+      default:
+        return text.codePointCount(0, text.length());
+      }
+  }
+
+  /**
+   * the length of codePoint in this encoding
+   */
+  public int Length(int codePoint)
+  {
+    switch (this)
+      {
+      case Utf8 :
+        return codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+      case Utf16 :
+        return Character.charCount(codePoint);
+      default:
+        return 1;
+      }
+  }
+
+}
@@ -84,12 +84,9 @@ public class QueryAST extends ANY
    */
   private static Optional<? extends AbstractFeature> FindTargetFeatureInASTDefusedFullStop(SourcePosition params)
   {
-    var uri = SourceText.UriOf(params);
-    var text = SourceText.getText(params);
-    SourceText.setText(uri, InsertDummyCharacter(text, params));
-    var result = FindTargetFeatureInAST(params);
-    SourceText.setText(uri, text);
-    return result;
+    // the text of the document is left alone, it may be changed concurrently
+    var item = ParserTool.ParseText(SourceText.UriOf(params), InsertDummyCharacter(SourceText.getText(params), params));
+    return FindTargetFeatureInAST(params, item.ASTIndex(item.uri()));
   }
 
   /*
@@ -113,17 +110,20 @@ public class QueryAST extends ANY
 
   // NYI motivate/explain this heuristic
   private static Optional<AbstractFeature> FindTargetFeatureInAST(SourcePosition params)
+  {
+    return FindTargetFeatureInAST(params, ParserTool.ASTIndex(SourceText.UriOf(params)));
+  }
+
+  private static Optional<AbstractFeature> FindTargetFeatureInAST(SourcePosition params, ASTIndex astIndex)
   {
     var leftToken = LexerTool.TokensAt(LexerTool.GoLeft(params)).left();
-    return ASTWalker
-      .Traverse(params)
-      .filter(entry -> entry.getKey() instanceof AbstractCall)
+    return astIndex
+      // calls by descending end of expression
+      .CallsEndingAtOrBefore(params)
       .filter(entry -> !entry.getValue().pos().isBuiltIn()
         && SourcePositionTool.PositionIsAfterOrAtCursor(params, ParserTool.endOfFeature(entry.getValue())))
-      .filter(entry -> SourcePositionTool.PositionIsBeforeCursor(params, ((AbstractCall) entry.getKey()).pos()))
-      .map(entry -> (AbstractCall) entry.getKey())
-      .filter(ac -> SourcePositionTool.Compare(ExprTool.EndOfExpr(ac), params) <= 0)
-      .sorted(ExprTool.CompareByEndOfExpr.reversed())
+      .filter(entry -> SourcePositionTool.PositionIsBeforeCursor(params, entry.getKey().pos()))
+      .map(entry -> entry.getKey())
       .filter(ac -> ac.calledFeature() != null)
       .filter(CallTool.CalledFeatureNotInternal)
       // if left token is identifier, filter none matching calls by name
@@ -150,14 +150,15 @@ public class QueryAST extends ANY
   // NYI motivate/explain this heuristic
   private static Optional<? extends AbstractFeature> Constant(SourcePosition params)
   {
-    return ASTWalker.Traverse(params)
+    return ParserTool
+      .ASTIndex(SourceText.UriOf(params))
+      // by descending position
+      .OnLineAtOrBefore(params)
       .filter(entry -> entry.getKey() instanceof Constant)
       .filter(entry -> !entry.getValue().pos().isBuiltIn()
         && SourcePositionTool.PositionIsAfterOrAtCursor(params, ParserTool.endOfFeature(entry.getValue())))
-      .filter(entry -> SourcePositionTool.PositionIsBeforeCursor(params, ((Constant) entry.getKey()).pos()))
+      .filter(entry -> SourcePositionTool.PositionIsBeforeCursor(params, entry.getKey().pos()))
       .map(entry -> ((Constant) entry.getKey()))
-      .filter(HasSourcePositionTool.IsItemOnSameLineAsCursor(params))
-      .sorted(HasSourcePositionTool.CompareBySourcePosition.reversed())
       .map(x -> x.type().feature())
       .findFirst();
   }
@@ -189,20 +190,10 @@ public class QueryAST extends ANY
    */
   private static Stream<AbstractFeature> Candidates(AbstractFeature targetFeature)
   {
-    var declaredFeaturesOfInheritedFeatures =
-      InheritedRecursive(targetFeature).flatMap(af -> ParserTool.DeclaredFeatures(af));
-
-    var declaredFeatures = Stream.concat(ParserTool
-      .DeclaredFeatures(targetFeature), declaredFeaturesOfInheritedFeatures)
-      .collect(Collectors.toList());
-
-    var redefinedFeatures =
-      declaredFeatures.stream().flatMap(x -> x.redefines().stream()).collect(Collectors.toSet());
-
-    return declaredFeatures
-      .stream()
-      // subtract redefined features from result
-      .filter(x -> !redefinedFeatures.contains(x))
+    return ParserTool
+      .Symbols(targetFeature)
+      .VisibleMembers(targetFeature)
+      .Features()
       .filter(x -> !x.isTypeParameter());
   }
 
@@ -216,39 +207,13 @@ public class QueryAST extends ANY
   {
     return TargetFeature(params)
       .map(feature -> {
-        var declaredFeaturesOfInheritedFeatures =
-          InheritedRecursive(feature).flatMap(af -> ParserTool.DeclaredFeatures(af));
-
-        var declaredFeatures = Stream.concat(ParserTool
-          .DeclaredFeatures(feature), declaredFeaturesOfInheritedFeatures)
-          .collect(Collectors.toList());
-
-        var redefinedFeatures =
-          declaredFeatures.stream().flatMap(x -> x.redefines().stream()).collect(Collectors.toSet());
-
-        // subtract redefined features from result
-        return declaredFeatures
-          .stream()
-          .filter(x -> x.featureName().baseName().startsWith("infix")
-            || x.featureName().baseName().startsWith("postfix"))
-          .filter(x -> !redefinedFeatures.contains(x));
+        var members = ParserTool.Symbols(feature).VisibleMembers(feature);
+        return Stream.concat(members.Prefixed("infix"), members.Prefixed("postfix"));
       })
       .orElse(Stream.empty());
   }
 
 
-  /**
-   * returns all directly and indirectly inherited features of af
-   * @param af
-   * @return
-   */
-  private static Stream<AbstractFeature> InheritedRecursive(AbstractFeature af)
-  {
-    return Stream.concat(af.inherits().stream().map(ac -> ac.calledFeature()),
-      af.inherits().stream().flatMap(c -> InheritedRecursive(c.calledFeature())));
-  }
-
-
   /**
    * @param params
    * @return
@@ -264,10 +229,10 @@ public class QueryAST extends ANY
       }
     else if (tokens.left().token().equals(Token.t_ident))
       {
-        return QueryAST.FeaturesInScope(params)
-          .filter(f -> {
-            return f.featureName().baseName().startsWith(tokens.left().text());
-          });
+        var symbols = ParserTool.Symbols(SourceText.UriOf(params));
+        return Scope(params)
+          .flatMap(f -> symbols.Members(f).Prefixed(tokens.left().text()))
+          .distinct();
       }
     return Stream.empty();
   }
@@ -282,12 +247,11 @@ public class QueryAST extends ANY
    */
   private static Stream<HasSourcePosition> ASTItemsBeforeOrAtCursor(SourcePosition params)
   {
-    return ASTWalker.Traverse(params)
+    return ParserTool
+      .ASTIndex(SourceText.UriOf(params))
+      .OnLineAtOrBefore(params)
       .filter(HasSourcePositionTool.IsItemInScope(params))
-      .map(entry -> entry.getKey())
-      .filter(HasSourcePositionTool.IsItemNotBuiltIn(params))
-      .filter(HasSourcePositionTool.IsItemOnSameLineAsCursor(params))
-      .sorted(HasSourcePositionTool.CompareBySourcePosition.reversed());
+      .map(entry -> entry.getKey());
   }
 
   /**
@@ -394,9 +358,10 @@ public class QueryAST extends ANY
    */
   private static Optional<AbstractFeature> FeatureAtFuzzy(SourcePosition params)
   {
+    var symbols = ParserTool.Symbols(SourceText.UriOf(params));
     return LexerTool.IdentOrOperatorTokenAt(params)
-      .flatMap(token -> QueryAST.FeaturesInScope(params)
-        .filter(f -> f.featureName().baseName().equals(token.text()))
+      .flatMap(token -> Scope(params)
+        .flatMap(f -> symbols.Members(f).Named(token.text()))
         // NYI we could be better here if we considered approximate
         // argcount
         .findFirst());
@@ -426,14 +391,12 @@ public class QueryAST extends ANY
    */
   public static boolean InString(SourcePosition params)
   {
-    return ASTWalker.Traverse(params)
+    return ParserTool
+      .ASTIndex(SourceText.UriOf(params))
+      .OnLine(params)
       .filter(x -> x.getKey() instanceof StrConst)
       .map(x -> (StrConst) x.getKey())
       .anyMatch(x -> {
-        if (x.pos().line() != params.line())
-          {
-            return false;
-          }
         var start = x.pos().column();
         var d = x.data();
         var end = x.pos().column() + Util.CharCount(new String(Arrays.copyOfRange(d, 4, ByteBuffer.wrap(d).order(ByteOrder.LITTLE_ENDIAN).getInt() + 4), StandardCharsets.UTF_8));
@@ -452,6 +415,18 @@ public class QueryAST extends ANY
    * @return all features which are accessible (callable) at pos
    */
   public static Stream<AbstractFeature> FeaturesInScope(SourcePosition pos)
+  {
+    var symbols = ParserTool.Symbols(SourceText.UriOf(pos));
+    return Scope(pos)
+      .flatMap(f -> symbols.Members(f).Features())
+      .distinct();
+  }
+
+  /**
+   * the features whose members are accessible at pos: the feature pos is
+   * in, its outer features and the features it inherits from.
+   */
+  private static Stream<AbstractFeature> Scope(SourcePosition pos)
   {
     return InFeature(pos)
       .map(feature -> {
@@ -459,11 +434,7 @@ public class QueryAST extends ANY
           Stream.of(feature),
           FeatureTool.OuterFeatures(feature),
           feature.inherits().stream().map(c -> c.calledFeature()))
-          .filter(f -> !TypeTool.ContainsError(f.selfType()))
-          .flatMap(f -> {
-            return ParserTool.DeclaredFeatures(f);
-          })
-          .distinct();
+          .filter(f -> !TypeTool.ContainsError(f.selfType()));
       })
       .orElse(Stream.empty());
   }
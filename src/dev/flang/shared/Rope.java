@@ -0,0 +1,388 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class Rope
+ *
+ *---------------------------------------------------------------------*/
+
+package dev.flang.shared;
+
+import dev.flang.util.ANY;
+
+/**
+ * immutable text stored as a height balanced tree of chunks.
+ *
+ * Replacing a range of text only copies the chunks at the borders of the
+ * range and O(log n) inner nodes. Every node knows its length and number of
+ * line breaks so that converting a line/character position to an offset is
+ * O(log n) as well.
+ *
+ * Offsets and characters are counted in UTF-16 code units, like in String.
+ */
+public abstract class Rope extends ANY
+{
+
+  /**
+   * texts longer than this are split into several chunks when creating a rope
+   */
+  private static final int MAX_CHUNK_LENGTH = 1024;
+
+  /**
+   * the empty rope
+   */
+  public static final Rope EMPTY = new Leaf("");
+
+  /**
+   * @return number of UTF-16 code units in this rope
+   */
+  public abstract int length();
+
+  /**
+   * @return number of '\n' in this rope
+   */
+  abstract int lineBreaks();
+
+  /**
+   * @return height of this tree, a leaf has height 0
+   */
+  abstract int height();
+
+  abstract void appendTo(StringBuilder sb);
+
+  /**
+   * create a rope containing text
+   */
+  public static Rope Of(String text)
+  {
+    if (text.length() <= MAX_CHUNK_LENGTH)
+      {
+        return new Leaf(text);
+      }
+    var middle = text.length() / 2;
+    // do not split surrogate pairs
+    if (Character.isHighSurrogate(text.charAt(middle - 1)))
+      {
+        middle++;
+      }
+    return Join(Of(text.substring(0, middle)), Of(text.substring(middle)));
+  }
+
+  /**
+   * @return number of lines in this rope, this is the number of line breaks plus one.
+   */
+  public int lineCount()
+  {
+    return lineBreaks() + 1;
+  }
+
+  /**
+   * offset of the start of the zero based line
+   * or length() if there is no such line.
+   */
+  public int LineStart(int line)
+  {
+    if (line <= 0)
+      {
+        return 0;
+      }
+    if (line > lineBreaks())
+      {
+        return length();
+      }
+    var rope = this;
+    var offset = 0;
+    while (rope instanceof Node n)
+      {
+        if (n.left.lineBreaks() >= line)
+          {
+            rope = n.left;
+          }
+        else
+          {
+            line = line - n.left.lineBreaks();
+            offset = offset + n.left.length();
+            rope = n.right;
+          }
+      }
+    var text = ((Leaf) rope).text;
+    var index = -1;
+    for (int i = 0; i < line; i++)
+      {
+        index = text.indexOf('\n', index + 1);
+      }
+    return offset + index + 1;
+  }
+
+  /**
+   * offset of the end of the zero based line, i.e. the offset of the
+   * terminating line break or length() for the last line.
+   */
+  public int LineEnd(int line)
+  {
+    return line + 1 > lineBreaks()
+      ? length()
+      : LineStart(line + 1) - 1;
+  }
+
+  /**
+   * offset of zero based line and character.
+   * If character is beyond the end of the line
+   * the offset of the end of the line is returned.
+   */
+  public int Offset(int line, int character)
+  {
+    if (line > lineBreaks())
+      {
+        return length();
+      }
+    return Math.min(LineStart(line) + character, LineEnd(line));
+  }
+
+  /**
+   * offset of zero based line and character, where character is counted in
+   * encoding. If character is beyond the end of the line or in the middle of
+   * a code point, it is rounded down.
+   */
+  public int Offset(int line, int character, PositionEncoding encoding)
+  {
+    if (encoding == PositionEncoding.Utf16 || line > lineBreaks())
+      {
+        return Offset(line, character);
+      }
+    var start = LineStart(line);
+    var text = Substring(start, LineEnd(line));
+    var offset = 0;
+    var units = 0;
+    while (offset < text.length())
+      {
+        var codePoint = text.codePointAt(offset);
+        units = units + encoding.Length(codePoint);
+        if (units > character)
+          {
+            break;
+          }
+        offset = offset + Character.charCount(codePoint);
+      }
+    return start + offset;
+  }
+
+  /**
+   * the text between start and end
+   */
+  public String Substring(int start, int end)
+  {
+    if (PRECONDITIONS)
+      require(0 <= start, start <= end, end <= length());
+
+    return Split(Split(this, end)[0], start)[1].toString();
+  }
+
+  /**
+   * @return new rope where the text between start and end is replaced by text
+   */
+  public Rope Replace(int start, int end, String text)
+  {
+    if (PRECONDITIONS)
+      require(0 <= start, start <= end, end <= length());
+
+    var left = Split(this, start)[0];
+    var right = Split(this, end)[1];
+    return Join(Join(left, Of(text)), right);
+  }
+
+  @Override
+  public String toString()
+  {
+    var sb = new StringBuilder(length());
+    appendTo(sb);
+    return sb.toString();
+  }
+
+  /**
+   * split rope at offset
+   * @return array of two ropes [0, offset) and [offset, length)
+   */
+  private static Rope[] Split(Rope rope, int offset)
+  {
+    if (offset <= 0)
+      {
+        return new Rope[] { EMPTY, rope };
+      }
+    if (offset >= rope.length())
+      {
+        return new Rope[] { rope, EMPTY };
+      }
+    if (rope instanceof Node n)
+      {
+        if (offset <= n.left.length())
+          {
+            var parts = Split(n.left, offset);
+            return new Rope[] { parts[0], Join(parts[1], n.right) };
+          }
+        var parts = Split(n.right, offset - n.left.length());
+        return new Rope[] { Join(n.left, parts[0]), parts[1] };
+      }
+    var text = ((Leaf) rope).text;
+    return new Rope[] { new Leaf(text.substring(0, offset)), new Leaf(text.substring(offset)) };
+  }
+
+  /**
+   * concatenate two ropes keeping the result height balanced.
+   */
+  private static Rope Join(Rope left, Rope right)
+  {
+    if (left.length() == 0)
+      {
+        return right;
+      }
+    if (right.length() == 0)
+      {
+        return left;
+      }
+    if (left instanceof Leaf l
+      && right instanceof Leaf r
+      && l.text.length() + r.text.length() <= MAX_CHUNK_LENGTH)
+      {
+        return new Leaf(l.text + r.text);
+      }
+    if (left.height() > right.height() + 1)
+      {
+        var l = (Node) left;
+        return Balance(l.left, Join(l.right, right));
+      }
+    if (right.height() > left.height() + 1)
+      {
+        var r = (Node) right;
+        return Balance(Join(left, r.left), r.right);
+      }
+    return new Node(left, right);
+  }
+
+  /**
+   * create node of left and right whose heights differ by at most two
+   * and rotate if necessary.
+   */
+  private static Rope Balance(Rope left, Rope right)
+  {
+    if (left.height() > right.height() + 1)
+      {
+        var l = (Node) left;
+        if (l.right.height() > l.left.height())
+          {
+            var lr = (Node) l.right;
+            return new Node(new Node(l.left, lr.left), new Node(lr.right, right));
+          }
+        return new Node(l.left, new Node(l.right, right));
+      }
+    if (right.height() > left.height() + 1)
+      {
+        var r = (Node) right;
+        if (r.left.height() > r.right.height())
+          {
+            var rl = (Node) r.left;
+            return new Node(new Node(left, rl.left), new Node(rl.right, r.right));
+          }
+        return new Node(new Node(left, r.left), r.right);
+      }
+    return new Node(left, right);
+  }
+
+  private static final class Leaf extends Rope
+  {
+    private final String text;
+    private final int lineBreaks;
+
+    private Leaf(String text)
+    {
+      this.text = text;
+      this.lineBreaks = (int) text.chars().filter(c -> c == '\n').count();
+    }
+
+    @Override
+    public int length()
+    {
+      return text.length();
+    }
+
+    @Override
+    int lineBreaks()
+    {
+      return lineBreaks;
+    }
+
+    @Override
+    int height()
+    {
+      return 0;
+    }
+
+    @Override
+    void appendTo(StringBuilder sb)
+    {
+      sb.append(text);
+    }
+  }
+
+  private static final class Node extends Rope
+  {
+    private final Rope left;
+    private final Rope right;
+    private final int length;
+    private final int lineBreaks;
+    private final int height;
+
+    private Node(Rope left, Rope right)
+    {
+      this.left = left;
+      this.right = right;
+      this.length = left.length() + right.length();
+      this.lineBreaks = left.lineBreaks() + right.lineBreaks();
+      this.height = Math.max(left.height(), right.height()) + 1;
+    }
+
+    @Override
+    public int length()
+    {
+      return length;
+    }
+
+    @Override
+    int lineBreaks()
+    {
+      return lineBreaks;
+    }
+
+    @Override
+    int height()
+    {
+      return height;
+    }
+
+    @Override
+    void appendTo(StringBuilder sb)
+    {
+      left.appendTo(sb);
+      right.appendTo(sb);
+    }
+  }
+
+}
@@ -0,0 +1,45 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class ServePolicy
+ *
+ *---------------------------------------------------------------------*/
+
+package dev.flang.shared;
+
+/**
+ * which parse of a document a request is answered from, see ParserTool.Serve.
+ */
+public enum ServePolicy
+{
+  /**
+   * wait for the parse of the current text of the document.
+   */
+  Current,
+
+  /**
+   * while the current text is not parsed yet, answer from the last version
+   * that parsed without errors and let the parse pipeline parse the
+   * current text in the background.
+   */
+  LastGood;
+}
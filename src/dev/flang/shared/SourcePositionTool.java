@@ -66,14 +66,7 @@ public class SourcePositionTool extends ANY
     {
       return new SourcePosition(sf, sf.byteLength());
     }
-    var bytePos = sf.lineStartPos(line);
-    var curColumn = 1;
-    while (curColumn < column && bytePos < sf.byteLength())
-      {
-        bytePos += sf.codePointSize(bytePos);
-        curColumn++;
-      }
-    return new SourcePosition(sf, bytePos);
+    return new SourcePosition(sf, LineIndex.Of(sf).BytePos(line, column));
   }
 
   public static SourcePosition ByLine(SourceFile sf, int line)
@@ -31,39 +31,319 @@ import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.TreeMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import dev.flang.util.ANY;
 import dev.flang.util.FuzionConstants;
+import dev.flang.util.SourceFile;
 import dev.flang.util.SourcePosition;
 
 public class SourceText extends ANY
 {
+
+  /**
+   * An edit of a text document that replaced the lines startLine to endLine
+   * by the lines startLine to newEndLine. Lines are one based.
+   */
+  private record LineEdit(int version, int startLine, int endLine, int newEndLine)
+  {
+  }
+
+  /**
+   * the maximum number of edits kept per document for mapping lines
+   * between versions.
+   */
+  private static final int MAX_LINE_EDITS = 1000;
+
+  /**
+   * A version of a text document.
+   * The text is kept as a rope as sent by the client, edits are applied to
+   * the rope. The text the parser sees, see
+   * AddReplacementCharacterAfterNoneFullStopDots, is only materialized
+   * when it is needed.
+   * The edits since firstVersion are kept so that lines can be mapped
+   * between versions, see MapLine.
+   */
+  private static final class TextDocument
+  {
+    private final Rope raw;
+    private final int version;
+    private final int firstVersion;
+    private final List<LineEdit> edits;
+    private String text;
+    private String contentHash;
+    private SourceFile sourceFile;
+
+    private TextDocument(Rope raw, int version)
+    {
+      this(raw, version, version, List.of());
+    }
+
+    private TextDocument(Rope raw, int version, int firstVersion, List<LineEdit> edits)
+    {
+      this.raw = raw;
+      this.version = version;
+      this.firstVersion = firstVersion;
+      this.edits = edits;
+    }
+
+    /**
+     * the document after edit was applied, resulting in raw
+     */
+    private TextDocument with(Rope raw, LineEdit edit)
+    {
+      var edits = new ArrayList<LineEdit>(this.edits);
+      edits.add(edit);
+      var firstVersion = this.firstVersion;
+      while (edits.size() > MAX_LINE_EDITS)
+        {
+          firstVersion = edits.remove(0).version();
+        }
+      return new TextDocument(raw, edit.version(), firstVersion, List.copyOf(edits));
+    }
+
+    private synchronized String text()
+    {
+      if (text == null)
+        {
+          text = AddReplacementCharacterAfterNoneFullStopDots(raw.toString());
+        }
+      return text;
+    }
+
+    private synchronized String contentHash()
+    {
+      if (contentHash == null)
+        {
+          contentHash = Util.ContentHash(text());
+        }
+      return contentHash;
+    }
+
+    private synchronized SourceFile sourceFile(Path path)
+    {
+      if (sourceFile == null)
+        {
+          sourceFile = new SourceFile(path, text().getBytes(StandardCharsets.UTF_8));
+        }
+      return sourceFile;
+    }
+  }
+
   /**
    * currently open text documents and their contents
    */
-  private static final TreeMap<URI, String> textDocuments = new TreeMap<URI, String>();
+  private static final ConcurrentSkipListMap<URI, TextDocument> textDocuments = new ConcurrentSkipListMap<>();
 
   public static final Path FuzionHome = Path.of(System.getProperty("fuzion.home"));
 
   public static void setText(URI uri, String text)
+  {
+    setText(uri, text, Version(uri) + 1);
+  }
+
+  public static void setText(URI uri, String text, int version)
   {
     if (PRECONDITIONS)
       require(text != null);
 
-    textDocuments.put(uri, AddReplacementCharacterAfterNoneFullStopDots(text));
+    textDocuments.put(uri, new TextDocument(Rope.Of(text), version));
+  }
+
+  /**
+   * Replace the text between the zero based start line/character and
+   * end line/character by newText. Characters are counted in the position
+   * encoding negotiated with the client, see Context.PositionEncoding.
+   *
+   * @param uri
+   * @param version the version of the document after this edit
+   * @param startLine
+   * @param startCharacter
+   * @param endLine
+   * @param endCharacter
+   * @param newText
+   */
+  public static void applyEdit(URI uri, int version, int startLine, int startCharacter, int endLine,
+    int endCharacter, String newText)
+  {
+    if (PRECONDITIONS)
+      require(newText != null);
+
+    textDocuments.compute(uri, (u, document) -> {
+      var current = document != null
+        ? document
+        : new TextDocument(Rope.Of(Optional.ofNullable(ReadFromDisk(u)).orElse("")), version);
+      var raw = current.raw;
+      var start = raw.Offset(startLine, startCharacter, Context.PositionEncoding);
+      var end = Math.max(start, raw.Offset(endLine, endCharacter, Context.PositionEncoding));
+      var newLines = (int) newText.chars().filter(c -> c == '\n').count();
+      // lines inserted in front of a line leave that line intact
+      var insertsLines = startLine == endLine && startCharacter == 0 && endCharacter == 0 && newText.endsWith("\n");
+      var edit = insertsLines
+        ? new LineEdit(version, startLine + 1, startLine, startLine + newLines)
+        : new LineEdit(version, startLine + 1, Math.max(startLine, endLine) + 1, startLine + 1 + newLines);
+      return current.with(raw.Replace(start, end, newText), edit);
+    });
   }
 
   public static String getText(URI uri)
   {
-    return textDocuments.computeIfAbsent(uri, u -> ReadFromDisk(u));
+    var document = textDocuments.computeIfAbsent(uri, u -> {
+      var text = ReadFromDisk(u);
+      return text == null ? null : new TextDocument(Rope.Of(text), 0);
+    });
+    return document == null ? null : document.text();
+  }
+
+  /**
+   * the text of the document at uri as sent by the client,
+   * without any of the modifications we do for the parser.
+   */
+  public static String getRawText(URI uri)
+  {
+    getText(uri);
+    var document = textDocuments.get(uri);
+    return document == null ? null : document.raw.toString();
+  }
+
+  /**
+   * @param uri
+   * @return the version of the document at uri, -1 if unknown.
+   */
+  public static int Version(URI uri)
+  {
+    var document = textDocuments.get(uri);
+    return document == null ? -1 : document.version;
+  }
+
+  /**
+   * map the one based line of the text of uri at version fromVersion
+   * to the corresponding line of the text at version toVersion.
+   *
+   * @return the line, empty if the line was edited in between or the
+   * edits between the versions are not known.
+   */
+  public static Optional<Integer> MapLine(URI uri, int line, int fromVersion, int toVersion)
+  {
+    var document = textDocuments.get(uri);
+    if (document == null
+      || Math.min(fromVersion, toVersion) < document.firstVersion
+      || Math.max(fromVersion, toVersion) > document.version)
+      {
+        return Optional.empty();
+      }
+    var result = line;
+    if (fromVersion <= toVersion)
+      {
+        for (var edit : document.edits)
+          {
+            if (edit.version() > fromVersion && edit.version() <= toVersion)
+              {
+                if (result > edit.endLine())
+                  {
+                    result += edit.newEndLine() - edit.endLine();
+                  }
+                else if (result >= edit.startLine())
+                  {
+                    return Optional.empty();
+                  }
+              }
+          }
+      }
+    else
+      {
+        for (var i = document.edits.size() - 1; i >= 0; i--)
+          {
+            var edit = document.edits.get(i);
+            if (edit.version() > toVersion && edit.version() <= fromVersion)
+              {
+                if (result > edit.newEndLine())
+                  {
+                    result -= edit.newEndLine() - edit.endLine();
+                  }
+                else if (result >= edit.startLine())
+                  {
+                    return Optional.empty();
+                  }
+              }
+          }
+      }
+    return Optional.of(result);
   }
 
+  /**
+   * can lines of the text of uri at version be mapped to the current text?
+   */
+  public static boolean CanMapLines(URI uri, int version)
+  {
+    var document = textDocuments.get(uri);
+    return document != null && version >= document.firstVersion && version <= document.version;
+  }
+
+  /**
+   * a source file holding the current text of uri. The same source file is
+   * returned until the text changes, so that its LineIndex can be reused.
+   */
+  public static SourceFile SourceFile(URI uri)
+  {
+    getText(uri);
+    return Optional
+      .ofNullable(textDocuments.get(uri))
+      .map(document -> document.sourceFile(Path.of(uri)))
+      .orElseGet(() -> new SourceFile(Path.of(uri), new byte[0]));
+  }
+
+  /**
+   * forget the document at uri, e.g. because it was closed,
+   * together with its parse results including the last good one.
+   */
   public static void removeText(URI uri)
   {
     textDocuments.remove(uri);
+    ParserTool.RemoveFromCache(uri);
+  }
+
+  /**
+   * hash of the current text of the document at uri.
+   * The hash is only computed once per version of the text.
+   *
+   * @param uri
+   * @return
+   */
+  public static String ContentHash(URI uri)
+  {
+    getText(uri);
+    return textDocuments.get(uri).contentHash();
+  }
+
+  /**
+   * hash of the text of the document at uri as sent by the client,
+   * empty if the document is not in memory.
+   */
+  public static Optional<String> RawContentHash(URI uri)
+  {
+    return Optional
+      .ofNullable(textDocuments.get(uri))
+      .map(document -> Util.ContentHash(document.raw.toString()));
+  }
+
+  /**
+   * the current text of uri if its hash is contentHash.
+   *
+   * @return the text, empty if the text has changed meanwhile.
+   */
+  public static Optional<String> getText(URI uri, String contentHash)
+  {
+    getText(uri);
+    return Optional
+      .ofNullable(textDocuments.get(uri))
+      .filter(document -> document.contentHash().equals(contentHash))
+      .map(document -> document.text());
   }
 
   /**
@@ -71,7 +351,10 @@ public class SourceText extends ANY
    */
   public static String getText(SourcePosition params)
   {
-    return getText(UriOf(params));
+    // positions in an older parse refer to the text that was parsed
+    return ParserTool
+      .TextOf(params._sourceFile)
+      .orElseGet(() -> getText(UriOf(params)));
   }
 
   /**
@@ -84,7 +367,7 @@ public class SourceText extends ANY
     return textDocuments
       .entrySet()
       .stream()
-      .map(e -> e.getKey().toString() + System.lineSeparator() + e.getValue())
+      .map(e -> e.getKey().toString() + System.lineSeparator() + e.getValue().text())
       .collect(Collectors.joining(System.lineSeparator()));
   }
 
@@ -161,10 +444,12 @@ public class SourceText extends ANY
    */
   public static URI UriOf(SourcePosition sourcePosition)
   {
-    return Path.of(
-      sourcePosition._sourceFile._fileName.toString()
-        .replace(FuzionConstants.SYMBOLIC_FUZION_MODULE.toString(), FuzionHome.toString() + "/lib/"))
-      .toUri();
+    return ParserTool
+      .UriOf(sourcePosition._sourceFile)
+      .orElseGet(() -> Path.of(
+        sourcePosition._sourceFile._fileName.toString()
+          .replace(FuzionConstants.SYMBOLIC_FUZION_MODULE.toString(), FuzionHome.toString() + "/lib/"))
+        .toUri());
   }
 
 }
@@ -0,0 +1,247 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class SymbolTable
+ *
+ *---------------------------------------------------------------------*/
+
+package dev.flang.shared;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import dev.flang.ast.AbstractFeature;
+import dev.flang.util.ANY;
+
+/**
+ * the features of a universe by name, computed once per parse.
+ *
+ * The members of a feature are indexed on first use, so that lookups in
+ * the scope of a cursor do not need the whole universe. The index of all
+ * features of the universe, by base name, qualified name and unique
+ * identifier, is built on the first lookup that needs it.
+ */
+public class SymbolTable extends ANY
+{
+
+  /**
+   * features by base name, with the distinct names sorted for prefix
+   * queries.
+   */
+  public static final class Names
+  {
+    /**
+     * the features in the order they were given
+     */
+    private final List<AbstractFeature> features;
+
+    private final Map<String, AbstractFeature[]> byName;
+
+    /**
+     * the keys of byName, sorted
+     */
+    private final String[] sortedNames;
+
+    private Names(Stream<AbstractFeature> features)
+    {
+      this.features = features.toList();
+      var byName = new HashMap<String, List<AbstractFeature>>();
+      this.features.forEach(f -> byName.computeIfAbsent(f.featureName().baseName(), n -> new ArrayList<>()).add(f));
+      this.byName = new HashMap<>(byName.size() * 4 / 3 + 1);
+      byName.forEach((name, fs) -> this.byName.put(name, fs.toArray(AbstractFeature[]::new)));
+      this.sortedNames = byName.keySet().toArray(String[]::new);
+      Arrays.sort(sortedNames);
+    }
+
+    /**
+     * all features in the order they were given
+     */
+    public Stream<AbstractFeature> Features()
+    {
+      return features.stream();
+    }
+
+    /**
+     * the features whose base name is name
+     */
+    public Stream<AbstractFeature> Named(String name)
+    {
+      return Arrays.stream(byName.getOrDefault(name, new AbstractFeature[0]));
+    }
+
+    /**
+     * the features whose base name starts with prefix, by name
+     */
+    public Stream<AbstractFeature> Prefixed(String prefix)
+    {
+      var from = Arrays.binarySearch(sortedNames, prefix);
+      from = from < 0 ? -from - 1: from;
+      var to = from;
+      while (to < sortedNames.length && sortedNames[to].startsWith(prefix))
+        {
+          to++;
+        }
+      return Arrays
+        .stream(sortedNames, from, to)
+        .flatMap(this::Named);
+    }
+  }
+
+  private final AbstractFeature universe;
+
+  /**
+   * the members, see ParserTool.DeclaredFeatures, of the features
+   * looked up so far.
+   */
+  private final Map<AbstractFeature, Names> members = Collections.synchronizedMap(new IdentityHashMap<>());
+
+  /**
+   * the features a feature inherits from, directly or indirectly,
+   * without duplicates. Guarded by this.
+   */
+  private final Map<AbstractFeature, List<AbstractFeature>> ancestors = new IdentityHashMap<>();
+
+  /**
+   * the members of the features looked up so far and of their ancestors,
+   * without the features that are redefined.
+   */
+  private final Map<AbstractFeature, Names> visibleMembers = Collections.synchronizedMap(new IdentityHashMap<>());
+
+  private Names all = null;
+  private Map<String, List<AbstractFeature>> byQualifiedName = null;
+  private Map<String, List<AbstractFeature>> byUniqueIdentifier = null;
+
+  public SymbolTable(AbstractFeature universe)
+  {
+    this.universe = universe;
+  }
+
+  /**
+   * the members of feature by name
+   */
+  public Names Members(AbstractFeature feature)
+  {
+    return members.computeIfAbsent(feature, f -> new Names(ParserTool.DeclaredFeatures(f)));
+  }
+
+  /**
+   * the features feature inherits from, directly or indirectly, each
+   * once. Direct ancestors come first, followed by the ancestors of each
+   * of them.
+   */
+  public synchronized List<AbstractFeature> Ancestors(AbstractFeature feature)
+  {
+    var result = ancestors.get(feature);
+    if (result == null)
+      {
+        // guards against cyclic inheritance in erroneous code
+        ancestors.put(feature, List.of());
+        var set = new LinkedHashSet<AbstractFeature>();
+        feature
+          .inherits()
+          .stream()
+          .map(c -> c.calledFeature())
+          .filter(f -> f != null)
+          .forEach(set::add);
+        for (var parent : List.copyOf(set))
+          {
+            set.addAll(Ancestors(parent));
+          }
+        result = List.copyOf(set);
+        ancestors.put(feature, result);
+      }
+    return result;
+  }
+
+  /**
+   * the members of feature and of its ancestors, except those that are
+   * redefined by one of them.
+   */
+  public Names VisibleMembers(AbstractFeature feature)
+  {
+    return visibleMembers.computeIfAbsent(feature, f -> {
+      var declared = Stream
+        .concat(Stream.of(f), Ancestors(f).stream())
+        .flatMap(a -> Members(a).Features())
+        .toList();
+      var redefined = declared
+        .stream()
+        .flatMap(x -> x.redefines().stream())
+        .collect(Collectors.toSet());
+      return new Names(declared.stream().filter(x -> !redefined.contains(x)));
+    });
+  }
+
+  /**
+   * all features of the universe by base name
+   */
+  public Names All()
+  {
+    Index();
+    return all;
+  }
+
+  /**
+   * the features whose qualified name is qualifiedName
+   */
+  public Stream<AbstractFeature> WithQualifiedName(String qualifiedName)
+  {
+    Index();
+    return byQualifiedName.getOrDefault(qualifiedName, List.of()).stream();
+  }
+
+  /**
+   * the features with the given FeatureTool.UniqueIdentifier
+   */
+  public Stream<AbstractFeature> WithUniqueIdentifier(String uniqueIdentifier)
+  {
+    Index();
+    return byUniqueIdentifier.getOrDefault(uniqueIdentifier, List.of()).stream();
+  }
+
+  private synchronized void Index()
+  {
+    if (all == null)
+      {
+        var features = FeatureTool.SelfAndDescendants(universe).toList();
+        var byQualifiedName = new HashMap<String, List<AbstractFeature>>();
+        var byUniqueIdentifier = new HashMap<String, List<AbstractFeature>>();
+        for (var f : features)
+          {
+            byQualifiedName.computeIfAbsent(f.qualifiedName(), n -> new ArrayList<>()).add(f);
+            byUniqueIdentifier.computeIfAbsent(FeatureTool.UniqueIdentifier(f), n -> new ArrayList<>()).add(f);
+          }
+        this.byQualifiedName = byQualifiedName;
+        this.byUniqueIdentifier = byUniqueIdentifier;
+        this.all = new Names(features.stream());
+      }
+  }
+
+}
@@ -0,0 +1,117 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class TokenCursor
+ *
+ *---------------------------------------------------------------------*/
+
+package dev.flang.shared;
+
+import dev.flang.parser.Lexer.Token;
+import dev.flang.shared.records.TokenInfo;
+import dev.flang.util.ANY;
+import dev.flang.util.SourceFile;
+import dev.flang.util.SourcePosition;
+
+/**
+ * iterates over the tokens of a text without allocating per token,
+ * see LexerTool.CursorAt.
+ */
+public class TokenCursor extends ANY
+{
+
+  private final TokenStore.Lexed lexed;
+
+  /**
+   * the source file positions of tokens refer to, see LexerTool.PositionsIn
+   */
+  private final SourceFile positionsIn;
+  private int index;
+
+  TokenCursor(TokenStore.Lexed lexed, SourceFile positionsIn, int index)
+  {
+    this.lexed = lexed;
+    this.positionsIn = positionsIn;
+    this.index = index;
+  }
+
+  /**
+   * is the cursor at a token, false once it moved past the last token
+   */
+  public boolean Valid()
+  {
+    return index < lexed.tokens().size();
+  }
+
+  /**
+   * move to the next token
+   */
+  public void Next()
+  {
+    if (PRECONDITIONS)
+      require(Valid());
+
+    index++;
+  }
+
+  public Token Token()
+  {
+    return lexed.tokens().token(index);
+  }
+
+  /**
+   * byte offset of the start of the token
+   */
+  public int StartByte()
+  {
+    return lexed.tokens().start(index);
+  }
+
+  /**
+   * byte offset of the end of the token
+   */
+  public int EndByte()
+  {
+    return lexed.tokens().end(index);
+  }
+
+  public SourcePosition Start()
+  {
+    return new SourcePosition(positionsIn, StartByte());
+  }
+
+  public SourcePosition End()
+  {
+    return new SourcePosition(positionsIn, EndByte());
+  }
+
+  public String Text()
+  {
+    return lexed.Text(index);
+  }
+
+  public TokenInfo TokenInfo()
+  {
+    return lexed.TokenInfo(index, positionsIn);
+  }
+
+}
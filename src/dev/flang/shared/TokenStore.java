@@ -0,0 +1,375 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class TokenStore
+ *
+ *---------------------------------------------------------------------*/
+
+package dev.flang.shared;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import dev.flang.parser.Lexer;
+import dev.flang.parser.Lexer.Token;
+import dev.flang.shared.records.TokenInfo;
+import dev.flang.util.ANY;
+import dev.flang.util.SourceFile;
+import dev.flang.util.SourcePosition;
+
+/**
+ * the tokens of the source texts of documents, kept across edits.
+ * Besides the most recent text of a document the tokens of one older
+ * version are kept, so that requests answered from the last good parse
+ * do not lex again what requests on the current text lexed before.
+ *
+ * When the text of a document changes, only the region between the common
+ * prefix and suffix of the old and the new text is lexed again. Lexing
+ * resumes at the last token before the change that follows white space
+ * outside of a string and stops as soon as it produces such a token after
+ * the change that the old text had at the same place.
+ */
+class TokenStore extends ANY
+{
+
+  /**
+   * the number of documents whose tokens are kept
+   */
+  private static final int MAX_DOCUMENTS = 32;
+
+  /**
+   * the number of versions of the text of a document whose tokens are kept,
+   * i.e. the current text and the text of the last good parse that requests
+   * may be answered from, see ServePolicy.
+   */
+  private static final int MAX_VERSIONS = 2;
+
+  private static final Token[] TOKENS = Token.values();
+
+  /**
+   * tokens stored in parallel arrays: the token at index i is of kind
+   * TOKENS[kinds[i]] and spans the bytes from starts[i] to ends[i].
+   * restarts[i] is true if lexing may resume at starts[i].
+   */
+  static final class Tokens
+  {
+    private int size = 0;
+    private int[] starts;
+    private int[] ends;
+    private short[] kinds;
+    private boolean[] restarts;
+
+    private Tokens(int capacity)
+    {
+      capacity = Math.max(capacity, 16);
+      starts = new int[capacity];
+      ends = new int[capacity];
+      kinds = new short[capacity];
+      restarts = new boolean[capacity];
+    }
+
+    int size()
+    {
+      return size;
+    }
+
+    int start(int i)
+    {
+      return starts[i];
+    }
+
+    int end(int i)
+    {
+      return ends[i];
+    }
+
+    Token token(int i)
+    {
+      return TOKENS[kinds[i]];
+    }
+
+    boolean restart(int i)
+    {
+      return restarts[i];
+    }
+
+    /**
+     * index of the first token that ends after bytePos, size() if there is none.
+     */
+    int IndexAfter(int bytePos)
+    {
+      var low = 0;
+      var high = size;
+      while (low < high)
+        {
+          var mid = (low + high) >>> 1;
+          if (ends[mid] <= bytePos)
+            {
+              low = mid + 1;
+            }
+          else
+            {
+              high = mid;
+            }
+        }
+      return low;
+    }
+
+    private void add(int start, int end, Token token, boolean restart)
+    {
+      ensureCapacity(size + 1);
+      starts[size] = start;
+      ends[size] = end;
+      kinds[size] = (short) token.ordinal();
+      restarts[size] = restart;
+      size++;
+    }
+
+    /**
+     * add the tokens of other from index from to index to, moved by delta bytes.
+     */
+    private void addAll(Tokens other, int from, int to, int delta)
+    {
+      var count = to - from;
+      ensureCapacity(size + count);
+      System.arraycopy(other.kinds, from, kinds, size, count);
+      System.arraycopy(other.restarts, from, restarts, size, count);
+      for (var i = 0; i < count; i++)
+        {
+          starts[size + i] = other.starts[from + i] + delta;
+          ends[size + i] = other.ends[from + i] + delta;
+        }
+      size += count;
+    }
+
+    /**
+     * is the token of other at index i, moved by delta bytes,
+     * the same as the token at index j?
+     */
+    private boolean same(int j, Tokens other, int i, int delta)
+    {
+      return starts[j] == other.starts[i] + delta
+        && ends[j] == other.ends[i] + delta
+        && kinds[j] == other.kinds[i]
+        && restarts[j] == other.restarts[i];
+    }
+
+    private void ensureCapacity(int capacity)
+    {
+      if (capacity > starts.length)
+        {
+          var newLength = Math.max(capacity, starts.length * 2);
+          starts = Arrays.copyOf(starts, newLength);
+          ends = Arrays.copyOf(ends, newLength);
+          kinds = Arrays.copyOf(kinds, newLength);
+          restarts = Arrays.copyOf(restarts, newLength);
+        }
+    }
+  }
+
+  /**
+   * text and its tokens
+   */
+  record Lexed(String text, byte[] bytes, SourceFile sourceFile, Tokens tokens)
+  {
+
+    /**
+     * the text of the token at index i
+     */
+    String Text(int i)
+    {
+      return new String(bytes, tokens.start(i), tokens.end(i) - tokens.start(i), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * the token at index i as token info with positions in positionsIn,
+     * a source file with the same text, see LexerTool.PositionsIn
+     */
+    TokenInfo TokenInfo(int i, SourceFile positionsIn)
+    {
+      return new TokenInfo(
+        new SourcePosition(positionsIn, tokens.start(i)),
+        new SourcePosition(positionsIn, tokens.end(i)),
+        Text(i),
+        tokens.token(i));
+    }
+  }
+
+  /*
+   * the lexed versions of the text of each document, most recently used first.
+   * Lexing happens outside of this map so that different documents are lexed
+   * in parallel, the map is only locked to look up and publish results.
+   */
+  private static final Map<URI, List<Lexed>> documents = Util.ThreadSafeLRUMap(MAX_DOCUMENTS, null);
+
+  /**
+   * the tokens of text, a version of the text of the document at uri.
+   */
+  static Lexed Of(URI uri, String text)
+  {
+    var versions = documents.getOrDefault(uri, List.of());
+    var result = versions
+      .stream()
+      .filter(lexed -> lexed.text().equals(text))
+      .findFirst()
+      .orElseGet(() -> versions.isEmpty() ? Lex(uri, text) : Relex(uri, versions.get(0), text));
+    if (versions.isEmpty() || versions.get(0) != result)
+      {
+        documents.compute(uri, (u, current) -> Publish(current, result));
+      }
+    return result;
+  }
+
+  /**
+   * versions with lexed as the most recently used one,
+   * dropping the least recently used ones beyond MAX_VERSIONS.
+   */
+  private static List<Lexed> Publish(List<Lexed> versions, Lexed lexed)
+  {
+    var result = new ArrayList<Lexed>(MAX_VERSIONS);
+    result.add(lexed);
+    if (versions != null)
+      {
+        versions
+          .stream()
+          .filter(v -> v != lexed && !v.text().equals(lexed.text()))
+          .limit(MAX_VERSIONS - 1)
+          .forEach(result::add);
+      }
+    return List.copyOf(result);
+  }
+
+  /**
+   * the tokens of text, lexed from scratch
+   */
+  private static Lexed Lex(URI uri, String text)
+  {
+    var bytes = text.getBytes(StandardCharsets.UTF_8);
+    var tokens = new Tokens(bytes.length / 4);
+    Lex(tokens, Path.of(uri), bytes, 0, null, 0, 0, 0);
+    return new Lexed(text, bytes, new SourceFile(Path.of(uri), bytes), tokens);
+  }
+
+  /**
+   * the tokens of text, reusing the tokens of old outside the changed region
+   */
+  private static Lexed Relex(URI uri, Lexed old, String text)
+  {
+    var bytes = text.getBytes(StandardCharsets.UTF_8);
+    var oldBytes = old.bytes();
+    var max = Math.min(bytes.length, oldBytes.length);
+    var prefix = 0;
+    while (prefix < max && bytes[prefix] == oldBytes[prefix])
+      {
+        prefix++;
+      }
+    var suffix = 0;
+    while (suffix < max - prefix
+      && bytes[bytes.length - 1 - suffix] == oldBytes[oldBytes.length - 1 - suffix])
+      {
+        suffix++;
+      }
+
+    // the last token that lexing may resume at before the change
+    var oldTokens = old.tokens();
+    var restart = Math.min(oldTokens.IndexAfter(prefix - 1), oldTokens.size() - 1);
+    // the white space before the token we resume at must not touch the change
+    while (restart > 0 && (!oldTokens.restart(restart) || oldTokens.start(restart) >= prefix))
+      {
+        restart--;
+      }
+    restart = Math.max(restart, 0);
+    var from = restart > 0 ? oldTokens.start(restart) : 0;
+
+    var tokens = new Tokens(oldTokens.size() + (bytes.length - oldBytes.length) / 4);
+    tokens.addAll(oldTokens, 0, restart, 0);
+    Lex(tokens, Path.of(uri), bytes, from, oldTokens, restart, bytes.length - suffix, bytes.length - oldBytes.length);
+    return new Lexed(text, bytes, new SourceFile(Path.of(uri), bytes), tokens);
+  }
+
+  /**
+   * lex bytes starting at byte offset from, which must be the start of a
+   * token that lexing may resume at, and add the tokens to result.
+   *
+   * If old is not null, lexing stops at the first token at or after changeEnd
+   * that old has at the same place moved by delta. The remaining tokens,
+   * starting with the one at oldIndex or later, are taken from old.
+   */
+  private static void Lex(Tokens result, Path path, byte[] bytes, int from, Tokens old, int oldIndex, int changeEnd,
+    int delta)
+  {
+    var lexer = LexerTool.NewLexer(path, bytes, from);
+    var inString = false;
+    var afterWhiteSpace = true;
+    while (lexer.current() != Token.t_eof)
+      {
+        var start = lexer.tokenPos();
+        var restart = !inString && afterWhiteSpace;
+        result.add(start, lexer.bytePos(), lexer.current(), restart);
+        if (old != null && restart && start >= changeEnd)
+          {
+            while (oldIndex < old.size() && old.start(oldIndex) + delta < start)
+              {
+                oldIndex++;
+              }
+            if (oldIndex < old.size() && result.same(result.size() - 1, old, oldIndex, delta))
+              {
+                // resynchronized with the old tokens
+                result.addAll(old, oldIndex + 1, old.size(), delta);
+                return;
+              }
+          }
+        inString = InString(lexer.current(), inString);
+        afterWhiteSpace = lexer.current() == Token.t_ws;
+        LexerTool.advance(lexer);
+      }
+  }
+
+  /**
+   * is the lexer inside of a string after token?
+   */
+  private static boolean InString(Token token, boolean inString)
+  {
+    switch (token)
+      {
+      case t_stringQD :
+      case t_stringQB :
+      case t_StringDD :
+      case t_StringDB :
+      case t_stringBD :
+      case t_stringBB :
+        return true;
+      case t_stringQQ :
+      case t_StringDQ :
+      case t_stringBQ :
+        return false;
+      default:
+        return inString;
+      }
+  }
+
+}
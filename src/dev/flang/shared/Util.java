@@ -29,8 +29,11 @@ package dev.flang.shared;
 import java.net.URI;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HexFormat;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -147,6 +150,38 @@ public class Util
     return text.codePoints().map(cp -> Character.charCount(cp)).sum();
   }
 
+  /**
+   * A hash of the given text that can be used to identify the text,
+   * i.e. as part of a cache key, instead of the text itself.
+   *
+   * @param text
+   * @return hex encoded sha-256 of the UTF-8 bytes of text
+   */
+  public static String ContentHash(String text)
+  {
+    return ContentHash(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * A hash of the given bytes, see ContentHash(String).
+   *
+   * @param bytes
+   * @return hex encoded sha-256 of bytes
+   */
+  public static String ContentHash(byte[] bytes)
+  {
+    try
+      {
+        var digest = MessageDigest.getInstance("SHA-256");
+        return HexFormat.of().formatHex(digest.digest(bytes));
+      }
+    catch (NoSuchAlgorithmException e)
+      {
+        // every java platform is required to support sha-256
+        throw new RuntimeException(e);
+      }
+  }
+
   public static String AddParens(String str)
   {
     if (str.contains(" "))
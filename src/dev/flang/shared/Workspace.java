@@ -0,0 +1,450 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class Workspace
+ *
+ *---------------------------------------------------------------------*/
+
+package dev.flang.shared;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import dev.flang.ast.AbstractCall;
+import dev.flang.ast.AbstractFeature;
+import dev.flang.shared.concurrent.UniverseLock;
+import dev.flang.util.ANY;
+
+/**
+ * the source files in the workspace folders of the client, parsed into
+ * one universe so that calls across files can be found.
+ *
+ * The universe reflects the files as saved on disk. It is rebuilt in the
+ * background as soon as a file was saved, created or deleted, queries wait
+ * for that build. Calls in files whose text in memory differs from the text
+ * the universe was parsed from are left out, since their positions would be
+ * wrong.
+ * The dependency graph, which file calls features of which other files,
+ * is recomputed only for those dirty files and the files depending on them.
+ *
+ * Methods that may wait for a parse release the universe of the current
+ * thread before synchronizing on this class, see UniverseLock. Building
+ * does not hold the monitor of this class while parsing, so marking files
+ * as changed never waits for a build.
+ */
+public class Workspace extends ANY
+{
+
+  /**
+   * key the workspace universe is stored under in the parser cache
+   */
+  private static final URI WORKSPACE_URI = URI.create("file:///fuzion-workspace");
+
+  private static List<Path> folders = List.of();
+
+  /**
+   * all .fz files in folders, null if not yet computed or outdated
+   */
+  private static List<Path> files = null;
+
+  /**
+   * files that changed since the universe was last built
+   */
+  private static final Set<Path> dirty = new HashSet<>();
+
+  /**
+   * maps a file to the files whose features it calls
+   */
+  private static final Map<Path, Set<Path>> dependencies = new HashMap<>();
+
+  /**
+   * top level features of each file in the current workspace universe
+   */
+  private static Map<Path, List<AbstractFeature>> topLevelFeatures = Map.of();
+
+  /**
+   * incremented whenever the universe is discarded, so that a build started
+   * before is not published and the new universe gets a new cache key
+   */
+  private static int generation = 0;
+
+  private static ParserCacheItem item = null;
+
+  /**
+   * hash of the text of each file the current workspace universe was parsed from
+   */
+  private static volatile Map<Path, String> parsedHashes = Map.of();
+
+  /**
+   * the thread building the workspace universe in the background
+   */
+  private static final ExecutorService builder = Executors.newSingleThreadExecutor(r -> {
+    var thread = Executors.defaultThreadFactory().newThread(r);
+    thread.setName("fuzion-workspace");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * the most recently scheduled build, queries wait for it to complete
+   */
+  private static CompletableFuture<Void> build = CompletableFuture.completedFuture(null);
+
+  /**
+   * set the workspace folders, discarding everything computed so far.
+   */
+  public static void SetFolders(Collection<Path> workspaceFolders)
+  {
+    UniverseLock.Release();
+    synchronized (Workspace.class)
+      {
+        folders = workspaceFolders.stream().map(p -> p.toAbsolutePath().normalize()).toList();
+        files = null;
+        dirty.clear();
+        dependencies.clear();
+        topLevelFeatures = Map.of();
+        Discard();
+        ScheduleBuild();
+      }
+  }
+
+  public static synchronized List<Path> Folders()
+  {
+    return folders;
+  }
+
+  /**
+   * mark the file at uri as changed on disk, i.e. it was saved, created or deleted.
+   */
+  public static void Invalidate(URI uri)
+  {
+    UniverseLock.Release();
+    synchronized (Workspace.class)
+      {
+        var path = PathOf(uri);
+        if (IsInWorkspace(path))
+          {
+            dirty.add(path);
+            files = null;
+            Discard();
+            ScheduleBuild();
+          }
+      }
+  }
+
+  /**
+   * all .fz files in the workspace folders
+   */
+  public static synchronized List<Path> Files()
+  {
+    if (files == null)
+      {
+        files = Files(folders);
+      }
+    return files;
+  }
+
+  /**
+   * all .fz files in sourceFolders
+   */
+  private static List<Path> Files(List<Path> sourceFolders)
+  {
+    return sourceFolders
+      .stream()
+      .flatMap(folder -> {
+        try (var walk = Files.walk(folder))
+          {
+            return walk
+              .filter(p -> Files.isRegularFile(p) && p.toString().endsWith(".fz"))
+              .toList()
+              .stream();
+          }
+        catch (IOException e)
+          {
+            return Stream.empty();
+          }
+      })
+      .map(p -> p.toAbsolutePath().normalize())
+      .sorted()
+      .toList();
+  }
+
+  /**
+   * the files that directly or transitively call features of file, not including file itself
+   */
+  public static Set<Path> Dependents(Path file)
+  {
+    AwaitBuild();
+    synchronized (Workspace.class)
+      {
+        var result = new HashSet<Path>();
+        var todo = new ArrayDeque<Path>(List.of(file));
+        while (!todo.isEmpty())
+          {
+            var current = todo.pop();
+            dependencies.forEach((dependent, dependees) -> {
+              if (dependees.contains(current) && result.add(dependent))
+                {
+                  todo.push(dependent);
+                }
+            });
+          }
+        result.remove(file);
+        return result;
+      }
+  }
+
+  /**
+   * calls to feature that happen in other files of the workspace
+   * than the one feature is declared in, except in files whose text in
+   * memory differs from the text the workspace universe was parsed from.
+   *
+   * feature may be from any universe, it is matched to the features of the
+   * workspace universe via its unique identifier.
+   *
+   * The current thread enters the workspace universe, the calls are collected
+   * while it is held, see UniverseLock.
+   */
+  public static List<SimpleEntry<AbstractCall, AbstractFeature>> CallsTo(AbstractFeature feature)
+  {
+    if (feature.pos().isBuiltIn())
+      {
+        return List.of();
+      }
+    var file = PathOf(ParserTool.getUri(feature.pos()));
+    if (!IsInWorkspace(file))
+      {
+        return List.of();
+      }
+    // still in the universe of feature
+    var identifier = FeatureTool.UniqueIdentifier(feature);
+    var dependents = Dependents(file);
+    var features = TopLevelFeatures();
+    return dependents
+      .stream()
+      .filter(Workspace::IsParsedText)
+      .flatMap(path -> features.getOrDefault(path, List.of()).stream())
+      .flatMap(f -> ASTWalker.Calls(f))
+      .filter(entry -> entry.getKey().calledFeature() != null
+        && identifier.equals(FeatureTool.UniqueIdentifier(entry.getKey().calledFeature()))
+        && dependents.contains(PathOf(ParserTool.getUri(entry.getKey().pos()))))
+      .toList();
+  }
+
+  private static Map<Path, List<AbstractFeature>> TopLevelFeatures()
+  {
+    AwaitBuild();
+    synchronized (Workspace.class)
+      {
+        if (item == null)
+          {
+            // invalidated meanwhile, the new build is not done yet
+            return Map.of();
+          }
+        UniverseLock.Enter(item.resolved());
+        return topLevelFeatures;
+      }
+  }
+
+  /**
+   * is the text of file in memory, if any, the text the workspace
+   * universe was parsed from?
+   */
+  private static boolean IsParsedText(Path file)
+  {
+    var parsed = parsedHashes.get(file);
+    return parsed != null && SourceText
+      .RawContentHash(file.toUri())
+      .map(parsed::equals)
+      .orElse(true);
+  }
+
+  /**
+   * build the workspace universe in the background.
+   */
+  private static void ScheduleBuild()
+  {
+    if (folders.isEmpty())
+      {
+        build = CompletableFuture.completedFuture(null);
+        return;
+      }
+    build = CompletableFuture.runAsync(() -> {
+      try
+        {
+          Build();
+        }
+      catch (Throwable e)
+        {
+          ErrorHandling.WriteStackTrace(e);
+        }
+      finally
+        {
+          UniverseLock.Release();
+        }
+    }, builder);
+  }
+
+  /**
+   * wait for the most recently scheduled build to complete.
+   */
+  private static void AwaitBuild()
+  {
+    // building parses, which needs all threads to leave their universe
+    UniverseLock.Release();
+    CompletableFuture<Void> pending;
+    synchronized (Workspace.class)
+      {
+        pending = build;
+      }
+    pending.join();
+  }
+
+  /**
+   * parse the workspace if necessary and update the dependencies
+   * of dirty files and their dependents.
+   *
+   * Parsing and computing the dependencies happen without holding the
+   * monitor of this class. The result is only published if the universe was
+   * not discarded meanwhile, otherwise the build scheduled by the discarding
+   * thread starts over.
+   */
+  private static void Build()
+  {
+    int buildGeneration;
+    List<Path> buildFolders;
+    Set<Path> buildDirty;
+    Map<Path, Set<Path>> buildDependencies;
+    synchronized (Workspace.class)
+      {
+        if (item != null || folders.isEmpty())
+          {
+            return;
+          }
+        buildGeneration = generation;
+        buildFolders = folders;
+        buildDirty = new HashSet<>(dirty);
+        buildDependencies = new HashMap<>();
+        dependencies.forEach((dependent, dependees) -> buildDependencies.put(dependent, new HashSet<>(dependees)));
+      }
+
+    var workspaceFiles = new HashSet<>(Files(buildFolders));
+    // read before parsing: a file saved meanwhile is invalidated and built again
+    var buildHashes = workspaceFiles
+      .stream()
+      .collect(Collectors.toMap(p -> p, p -> ErrorHandling.ResultOrDefault(() -> Util.ContentHash(Files.readString(p)), "")));
+    var buildItem = ParserTool.SourceDirsItem(WORKSPACE_URI, Integer.toString(buildGeneration), buildFolders);
+
+    var buildTopLevelFeatures = ParserTool
+      .DeclaredFeatures(buildItem.universe())
+      .filter(f -> !f.pos().isBuiltIn() && PathOf(ParserTool.getUri(f.pos())) != null)
+      .collect(Collectors.groupingBy(f -> PathOf(ParserTool.getUri(f.pos()))));
+
+    var outdated = new HashSet<Path>(buildDirty);
+    buildDirty.forEach(d -> buildDependencies.forEach((dependent, dependees) -> {
+      if (dependees.contains(d))
+        {
+          outdated.add(dependent);
+        }
+    }));
+    workspaceFiles
+      .stream()
+      .filter(p -> !buildDependencies.containsKey(p))
+      .forEach(outdated::add);
+    buildDependencies.keySet().removeIf(p -> outdated.contains(p) || !workspaceFiles.contains(p));
+    outdated
+      .stream()
+      .filter(workspaceFiles::contains)
+      .forEach(p -> buildDependencies.put(p, new HashSet<>()));
+    outdated
+      .stream()
+      .flatMap(p -> buildTopLevelFeatures.getOrDefault(p, List.of()).stream())
+      .flatMap(f -> ASTWalker.Calls(f))
+      .filter(entry -> entry.getKey().calledFeature() != null
+        && !entry.getKey().calledFeature().pos().isBuiltIn())
+      .forEach(entry -> {
+        var caller = PathOf(ParserTool.getUri(entry.getKey().pos()));
+        var callee = PathOf(ParserTool.getUri(entry.getKey().calledFeature().pos()));
+        if (!caller.equals(callee) && buildDependencies.containsKey(caller) && workspaceFiles.contains(callee))
+          {
+            buildDependencies.get(caller).add(callee);
+          }
+      });
+
+    synchronized (Workspace.class)
+      {
+        if (generation != buildGeneration)
+          {
+            // discarded meanwhile, nothing else is cached under WORKSPACE_URI
+            // since builds run one after another
+            ParserTool.RemoveFromCache(WORKSPACE_URI);
+            return;
+          }
+        item = buildItem;
+        parsedHashes = buildHashes;
+        topLevelFeatures = buildTopLevelFeatures;
+        dependencies.clear();
+        dependencies.putAll(buildDependencies);
+        dirty.removeAll(buildDirty);
+      }
+  }
+
+  /**
+   * drop the current workspace universe, it is rebuilt on next use.
+   */
+  private static void Discard()
+  {
+    generation++;
+    if (item != null)
+      {
+        ParserTool.RemoveFromCache(WORKSPACE_URI);
+        item = null;
+        parsedHashes = Map.of();
+      }
+  }
+
+  private static boolean IsInWorkspace(Path path)
+  {
+    return path != null && folders.stream().anyMatch(path::startsWith);
+  }
+
+  private static Path PathOf(URI uri)
+  {
+    return ErrorHandling.ResultOrDefault(() -> Path.of(uri).toAbsolutePath().normalize(), null);
+  }
+
+}
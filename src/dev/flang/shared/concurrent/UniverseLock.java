@@ -0,0 +1,302 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class UniverseLock
+ *
+ *---------------------------------------------------------------------*/
+
+package dev.flang.shared.concurrent;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.Supplier;
+
+import dev.flang.ast.Types;
+import dev.flang.ast.Types.Resolved;
+import dev.flang.util.ANY;
+
+/**
+ * The front end keeps the resolution context of the universe it works
+ * on in the global Types.resolved. This lock lets any number of threads
+ * work on the same universe in parallel, while threads that want to work
+ * on another universe wait until the current universe is no longer in use.
+ * Parsing sets Types.resolved itself and is therefore exclusive.
+ *
+ * A thread enters the universe of every parse result it gets and keeps
+ * it until it enters another universe, calls Release or its task ends,
+ * see Concurrency. A thread that waits never holds a universe, so
+ * waiting threads cannot block each other.
+ *
+ * Once a thread waits for a parse or for another universe, no more threads
+ * may join the current universe, so that a steady stream of requests on one
+ * universe does not starve parsing or requests on other documents. Only
+ * threads helping a thread that holds the universe, see In, may still join.
+ */
+public class UniverseLock extends ANY
+{
+
+  /**
+   * the universe threads are currently working on
+   */
+  private static Resolved current = null;
+
+  /**
+   * number of threads working on current
+   */
+  private static int running = 0;
+
+  /**
+   * the thread that is parsing, null if none
+   */
+  private static Thread exclusiveOwner = null;
+
+  /**
+   * number of threads waiting in Exclusive
+   */
+  private static int exclusiveWaiting = 0;
+
+  /**
+   * number of threads waiting in Enter, in total and by the universe they
+   * wait for
+   */
+  private static int enterWaiting = 0;
+  private static final Map<Resolved, Integer> enterWaitingFor = new IdentityHashMap<>();
+
+  /**
+   * the universe the current thread is working on
+   */
+  private static final ThreadLocal<Resolved> held = new ThreadLocal<>();
+
+  /**
+   * let the current thread work on the universe of resolved,
+   * waits until no other universe is in use and no parse is in progress.
+   *
+   * @throws CancellationException if interrupted while waiting.
+   */
+  public static synchronized void Enter(Resolved resolved)
+  {
+    if (held.get() == resolved)
+      {
+        return;
+      }
+    if (exclusiveOwner == Thread.currentThread())
+      {
+        Types.resolved = resolved;
+        return;
+      }
+    ReleaseHeld();
+    if (!MayTake(resolved))
+      {
+        enterWaiting++;
+        enterWaitingFor.merge(resolved, 1, Integer::sum);
+        try
+          {
+            while (!MayTake(resolved))
+              {
+                Wait();
+              }
+          }
+        finally
+          {
+            enterWaiting--;
+            enterWaitingFor.computeIfPresent(resolved, (r, count) -> count == 1 ? null : count - 1);
+            UniverseLock.class.notifyAll();
+          }
+      }
+    Take(resolved);
+  }
+
+  /**
+   * like Enter but does not wait.
+   *
+   * @return true if the current thread now works on the universe of resolved.
+   */
+  public static synchronized boolean TryEnter(Resolved resolved)
+  {
+    if (held.get() == resolved)
+      {
+        return true;
+      }
+    ReleaseHeld();
+    if (!MayTake(resolved))
+      {
+        return false;
+      }
+    Take(resolved);
+    return true;
+  }
+
+  /**
+   * may a thread start working on the universe of resolved right now?
+   *
+   * Joining the universe other threads work on is only allowed while no
+   * thread waits for a parse or for another universe.
+   */
+  private static boolean MayTake(Resolved resolved)
+  {
+    if (exclusiveOwner != null)
+      {
+        return false;
+      }
+    if (running == 0)
+      {
+        return exclusiveWaiting == 0;
+      }
+    return current == resolved
+      && exclusiveWaiting == 0
+      && enterWaiting == enterWaitingFor.getOrDefault(resolved, 0);
+  }
+
+  /**
+   * stop working on any universe.
+   */
+  public static synchronized void Release()
+  {
+    ReleaseHeld();
+  }
+
+  /**
+   * does the current thread work on the universe of resolved?
+   */
+  public static boolean Holds(Resolved resolved)
+  {
+    return held.get() == resolved;
+  }
+
+  /**
+   * run supplier on the universe of resolved, e.g. in a fork/join worker
+   * helping a thread that holds resolved. The current thread leaves the
+   * universe afterwards unless it already worked on it before.
+   */
+  public static <T> T In(Resolved resolved, Supplier<T> supplier)
+  {
+    var enter = !Holds(resolved);
+    if (enter)
+      {
+        Join(resolved);
+      }
+    try
+      {
+        return supplier.get();
+      }
+    finally
+      {
+        if (enter)
+          {
+            Release();
+          }
+      }
+  }
+
+  /**
+   * like Enter, but joins the universe of resolved even if other threads
+   * wait for it to be released. Used by threads helping a thread that
+   * holds the universe, which would otherwise wait for each other.
+   */
+  private static synchronized void Join(Resolved resolved)
+  {
+    ReleaseHeld();
+    while (exclusiveOwner != null || (running > 0 && current != resolved))
+      {
+        Wait();
+      }
+    Take(resolved);
+  }
+
+  /**
+   * run supplier while no other thread works on any universe.
+   */
+  public static <T> T Exclusive(Supplier<T> supplier)
+  {
+    synchronized (UniverseLock.class)
+      {
+        if (exclusiveOwner == Thread.currentThread())
+          {
+            return supplier.get();
+          }
+        ReleaseHeld();
+        exclusiveWaiting++;
+        try
+          {
+            while (exclusiveOwner != null || running > 0)
+              {
+                Wait();
+              }
+          }
+        finally
+          {
+            exclusiveWaiting--;
+            UniverseLock.class.notifyAll();
+          }
+        exclusiveOwner = Thread.currentThread();
+      }
+    try
+      {
+        return supplier.get();
+      }
+    finally
+      {
+        synchronized (UniverseLock.class)
+          {
+            exclusiveOwner = null;
+            current = null;
+            UniverseLock.class.notifyAll();
+          }
+      }
+  }
+
+  private static void Take(Resolved resolved)
+  {
+    current = resolved;
+    Types.resolved = resolved;
+    running++;
+    held.set(resolved);
+  }
+
+  private static void ReleaseHeld()
+  {
+    if (held.get() != null)
+      {
+        held.remove();
+        running--;
+        UniverseLock.class.notifyAll();
+      }
+
+    if (POSTCONDITIONS)
+      ensure(running >= 0);
+  }
+
+  private static void Wait()
+  {
+    try
+      {
+        UniverseLock.class.wait();
+      }
+    catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+        throw new CancellationException();
+      }
+  }
+
+}
@@ -0,0 +1,37 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class IndexedFeature
+ *
+ *---------------------------------------------------------------------*/
+
+package dev.flang.shared.records;
+
+import java.util.List;
+
+import dev.flang.shared.FeatureKind;
+
+/**
+ * a feature as stored in the feature index.
+ * outer is the index of the outer feature in the index or -1 for top level features.
+ */
+public record IndexedFeature(int outer, String label, String hover, FeatureKind kind, IndexedRange range,
+  IndexedRange name, List<String> inherits){}
@@ -0,0 +1,41 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class IndexedRange
+ *
+ *---------------------------------------------------------------------*/
+
+package dev.flang.shared.records;
+
+/**
+ * a range of source text given by one based lines and columns as in SourcePosition.
+ */
+public record IndexedRange(int line, int column, int endLine, int endColumn)
+{
+  /**
+   * is the position line, column within this range, end inclusive?
+   */
+  public boolean Contains(int l, int c)
+  {
+    return (l > line || (l == line && c >= column))
+      && (l < endLine || (l == endLine && c <= endColumn));
+  }
+}
@@ -44,8 +44,10 @@ import dev.flang.lsp.server.enums.TokenType; // NYI remove dependency
 import dev.flang.parser.Lexer.Token;
 import dev.flang.shared.ASTWalker;
 import dev.flang.shared.CallTool;
+import dev.flang.shared.Context;
 import dev.flang.shared.FeatureTool;
 import dev.flang.shared.LexerTool;
+import dev.flang.shared.LineIndex;
 import dev.flang.shared.ParserTool;
 import dev.flang.shared.SourceText;
 import dev.flang.shared.Util;
@@ -121,7 +123,7 @@ public class TokenInfo extends ANY
   }
 
   /*
-  * startChar of token, zero based
+  * startChar of token, zero based, counted in the position encoding
   */
   private Integer startChar()
   {
@@ -129,22 +131,16 @@ public class TokenInfo extends ANY
       {
         return 0;
       }
-    return SourceText
-      .LineAt(_start)
-      .codePoints()
-      .limit(_start.column() - 1)
-      .map(cp -> Character.charCount(cp))
-      .sum();
+    return LineIndex.Of(_start._sourceFile).Character(_start.bytePos(), Context.PositionEncoding);
   }
 
   /**
-   * Takes into account that supplementary characters like
-   * 😀 need twice the horizontal space and are thus counted as
-   * 2.
+   * the length of the token in the position encoding, e.g. 😀
+   * counts as 4 in UTF-8, as 2 in UTF-16 and as 1 in UTF-32.
    */
   public Integer charCount()
   {
-    return Util.CharCount(text());
+    return Context.PositionEncoding.Length(text());
   }
 
 
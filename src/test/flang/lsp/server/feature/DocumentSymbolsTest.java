@@ -26,11 +26,17 @@ Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
 
 package test.flang.lsp.server.feature;
 
+import java.nio.file.Path;
+
+import org.eclipse.lsp4j.DocumentSymbolParams;
+import org.eclipse.lsp4j.TextDocumentIdentifier;
 import org.junit.jupiter.api.Test;
 
 import dev.flang.lsp.server.feature.DocumentSymbols;
 import dev.flang.shared.ParserTool;
 import dev.flang.shared.SourceText;
+import dev.flang.util.SourceFile;
+import dev.flang.util.SourcePosition;
 import test.flang.shared.BaseTest;
 
 public class DocumentSymbolsTest extends BaseTest
@@ -39,7 +45,15 @@ public class DocumentSymbolsTest extends BaseTest
   public void DocumentSymbols(){
     SourceText.setText(uri1, Mandelbrot);
     var main = ParserTool.TopLevelFeatures(uri1).findFirst().get();
-    var documentSymbolTree = DocumentSymbols.DocumentSymbolTree(main);
+    var documentSymbolTree = DocumentSymbols.DocumentSymbolTree(main).get();
     assertTrue(documentSymbolTree.getChildren().size() > 0);
   }
+
+  @Test
+  public void DocumentSymbolsOfStdLibFile()
+  {
+    var uri = ParserTool.getUri(new SourcePosition(new SourceFile(Path.of("fuzion/build/lib/yak.fz")), 0));
+    var params = new DocumentSymbolParams(new TextDocumentIdentifier(uri.toString()));
+    assertFalse(DocumentSymbols.getDocumentSymbols(params).isEmpty());
+  }
 }
@@ -30,6 +30,7 @@ package test.flang.lsp.server.feature;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -37,8 +38,12 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
 import org.eclipse.lsp4j.SemanticTokens;
+import org.eclipse.lsp4j.SemanticTokensDeltaParams;
 import org.eclipse.lsp4j.SemanticTokensParams;
+import org.eclipse.lsp4j.SemanticTokensRangeParams;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
@@ -455,6 +460,56 @@ public class SemanticTokenTest extends ExtendedBaseTest
 
   }
 
+  @Test
+  public void SemanticTokensDelta()
+  {
+    SourceText.setText(uri1, HelloWorld);
+    var previous = SemanticToken.getSemanticTokens(Params(uri1));
+    SourceText.setText(uri1, HelloWorld + System.lineSeparator() + "  say 42" + System.lineSeparator());
+
+    var delta = SemanticToken
+      .getSemanticTokensDelta(new SemanticTokensDeltaParams(TextDocument(Cursor(uri1, 0, 0)), previous.getResultId()));
+    assertTrue(delta.isRight());
+    var data = new ArrayList<>(previous.getData());
+    delta.getRight().getEdits().forEach(edit -> {
+      data.subList(edit.getStart(), edit.getStart() + edit.getDeleteCount()).clear();
+      data.addAll(edit.getStart(), edit.getData());
+    });
+    assertEquals(SemanticToken.getSemanticTokens(Params(uri1)).getData(), data);
+
+    var unknown = SemanticToken
+      .getSemanticTokensDelta(new SemanticTokensDeltaParams(TextDocument(Cursor(uri1, 0, 0)), "unknown"));
+    assertTrue(unknown.isLeft());
+  }
+
+  @Test
+  public void SemanticTokensRange()
+  {
+    SourceText.setText(uri1, ManOrBoy);
+    var all = AbsoluteLines(SemanticToken.getSemanticTokens(Params(uri1)).getData());
+    var range = AbsoluteLines(SemanticToken
+      .getSemanticTokensRange(
+        new SemanticTokensRangeParams(TextDocument(Cursor(uri1, 0, 0)), new Range(new Position(2, 0), new Position(5, 0))))
+      .getData());
+    assertTrue(range.size() > 0);
+    assertEquals(all.stream().filter(l -> 2 <= l && l <= 4).toList(), range);
+  }
+
+  /**
+   * the zero based line of each token in data
+   */
+  private static List<Integer> AbsoluteLines(List<Integer> data)
+  {
+    var result = new ArrayList<Integer>();
+    var line = 0;
+    for (var i = 0; i < data.size(); i += 5)
+      {
+        line += data.get(i);
+        result.add(line);
+      }
+    return result;
+  }
+
   private SemanticTokensParams Params(URI uri)
   {
     return new SemanticTokensParams(TextDocument(Cursor(uri, 0, 0)));
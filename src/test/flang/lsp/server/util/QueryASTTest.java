@@ -263,11 +263,15 @@ public class QueryASTTest extends ExtendedBaseTest
         level1.
       """;
     SourceText.setText(uri1, sourceText);
+    var version = SourceText.Version(uri1);
     assertEquals("level1", QueryAST
       .TargetFeature(Cursor(uri1, 4, 9))
       .get()
       .featureName()
       .baseName());
+    // the dummy character is inserted into a private copy of the text
+    assertEquals(sourceText, SourceText.getRawText(uri1));
+    assertEquals(version, SourceText.Version(uri1));
   }
 
   @Test
@@ -0,0 +1,88 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class ASTIndexTest
+ *
+ *---------------------------------------------------------------------*/
+
+package test.flang.shared;
+
+import java.util.Map.Entry;
+
+import org.junit.jupiter.api.Test;
+
+import dev.flang.ast.AbstractCall;
+import dev.flang.shared.ASTWalker;
+import dev.flang.shared.ExprTool;
+import dev.flang.shared.HasSourcePositionTool;
+import dev.flang.shared.ParserTool;
+import dev.flang.shared.SourcePositionTool;
+import dev.flang.shared.SourceText;
+import dev.flang.util.HasSourcePosition;
+
+public class ASTIndexTest extends BaseTest
+{
+
+  @Test
+  public void SameAsSortedTraversal()
+  {
+    SourceText.setText(uri1, ManOrBoy);
+    var index = ParserTool.ASTIndex(uri1);
+    var lines = ManOrBoy.split("\n", -1);
+    for (var line = 0; line < lines.length; line++)
+      {
+        for (var character = 0; character <= lines[line].length(); character += 3)
+          {
+            var pos = Cursor(uri1, line, character);
+            var expected = ASTWalker
+              .Traverse(uri1)
+              .map(Entry::getKey)
+              .filter(HasSourcePositionTool.IsItemInFile(uri1))
+              .filter(item -> item.pos().line() == pos.line()
+                && SourcePositionTool.Compare(item.pos(), pos) <= 0)
+              .sorted(HasSourcePositionTool.CompareBySourcePosition.reversed())
+              .toList();
+            assertEquals(expected, index.OnLineAtOrBefore(pos).map(Entry::getKey).toList());
+          }
+      }
+  }
+
+  @Test
+  public void CallsEndingAtOrBefore()
+  {
+    SourceText.setText(uri1, ManOrBoy);
+    var index = ParserTool.ASTIndex(uri1);
+    var pos = Cursor(uri1, 10, 0);
+    var expected = ASTWalker
+      .Traverse(uri1)
+      .map(Entry::getKey)
+      .filter(HasSourcePositionTool.IsItemInFile(uri1))
+      .filter(item -> item instanceof AbstractCall)
+      .map(item -> (AbstractCall) item)
+      .filter(c -> SourcePositionTool.Compare(ExprTool.EndOfExpr(c), pos) <= 0)
+      .sorted(ExprTool.CompareByEndOfExpr.reversed())
+      .map(c -> (HasSourcePosition) c)
+      .toList();
+    assertEquals(expected, index.CallsEndingAtOrBefore(pos).map(Entry::getKey).toList());
+  }
+
+}
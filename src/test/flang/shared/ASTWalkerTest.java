@@ -26,9 +26,12 @@ Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
 
 package test.flang.shared;
 
+import java.util.stream.Stream;
+
 import org.junit.jupiter.api.Test;
 
 import dev.flang.shared.ASTWalker;
+import dev.flang.shared.FeatureTool;
 import dev.flang.shared.ParserTool;
 import dev.flang.shared.SourceText;
 
@@ -82,4 +85,46 @@ public class ASTWalkerTest extends BaseTest
       .featureName()
       .baseName());
   }
+
+  @Test
+  public void DeeplyNestedFeatures()
+  {
+    var depth = 200;
+    var sourceText = new StringBuilder();
+    for (var i = 0; i < depth; i++)
+      {
+        sourceText.append("  ".repeat(i) + "a" + i + " is" + System.lineSeparator());
+      }
+    sourceText.append("  ".repeat(depth) + "say 1" + System.lineSeparator());
+    SourceText.setText(uri1, sourceText.toString());
+    assertEquals(depth, ASTWalker.Features(uri1).count());
+  }
+
+  @Test
+  public void TraverseEqualsTraverseOfTopLevelFeatures()
+  {
+    SourceText.setText(uri1, ManOrBoy);
+    assertEquals(
+      ParserTool.TopLevelFeatures(uri1).flatMap(f -> ASTWalker.TraverseFeature(f, true)).toList(),
+      ASTWalker.Traverse(uri1).toList());
+  }
+
+  @Test
+  public void ParallelTraversalOfUniverse()
+  {
+    SourceText.setText(uri1, HelloWorld);
+    var universe = ParserTool.Universe(uri1);
+    var expected = Stream
+      .concat(
+        ASTWalker.TraverseFeature(universe, false),
+        ParserTool.DeclaredFeatures(universe, true).flatMap(f -> ASTWalker.TraverseFeature(f, true)))
+      .distinct()
+      .toList();
+    assertEquals(expected, ASTWalker.TraverseFeature(universe, true).toList());
+    assertEquals(
+      Stream
+        .concat(Stream.of(universe), ParserTool.DeclaredFeatures(universe).flatMap(FeatureTool::SelfAndDescendants))
+        .toList(),
+      FeatureTool.SelfAndDescendants(universe).toList());
+  }
 }
@@ -41,16 +41,19 @@ import org.eclipse.lsp4j.MessageParams;
 import org.eclipse.lsp4j.PublishDiagnosticsParams;
 import org.eclipse.lsp4j.ShowMessageRequestParams;
 import org.eclipse.lsp4j.services.LanguageClient;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Nested;
 
 import dev.flang.ast.AbstractFeature;
 import dev.flang.lsp.server.Config;
+import dev.flang.shared.FeatureIndex;
 import dev.flang.shared.IO;
 import dev.flang.shared.ParserTool;
 import dev.flang.shared.SourcePositionTool;
 import dev.flang.shared.SourceText;
+import dev.flang.shared.concurrent.UniverseLock;
 import dev.flang.util.Errors;
 import dev.flang.util.SourceFile;
 import dev.flang.util.SourcePosition;
@@ -118,8 +121,18 @@ public abstract class BaseTest extends Assertions
       .get();
   }
 
+  /**
+   * junit workers are not pool threads that release the universe after
+   * each task, so release it here to not block other tests.
+   */
+  @AfterEach
+  public void releaseUniverse()
+  {
+    UniverseLock.Release();
+  }
+
   @BeforeAll
-  public static void setup()
+  public static void setup() throws IOException
   {
     System.setProperty("FUZION_DISABLE_ANSI_ESCAPES", "true");
 
@@ -169,6 +182,9 @@ public abstract class BaseTest extends Assertions
 
     });
 
+    // do not write feature indices to the cache directory of the user
+    FeatureIndex.SetCacheDir(Files.createTempDirectory("fuzion-feature-index"));
+
     // we want to allow more than the default of 20 errors
     Errors.MAX_ERROR_MESSAGES = Integer.MAX_VALUE;
 
@@ -0,0 +1,80 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class FeatureIndexTest
+ *
+ *---------------------------------------------------------------------*/
+
+package test.flang.shared;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Test;
+
+import dev.flang.shared.FeatureIndex;
+import dev.flang.shared.FeatureKind;
+import dev.flang.shared.SourceText;
+
+public class FeatureIndexTest extends BaseTest
+{
+
+  @Test
+  public void Create()
+  {
+    SourceText.setText(uri1, HelloWorld);
+    var index = FeatureIndex.Create(uri1);
+    var helloWorld = index.features().get(0);
+    assertEquals(-1, helloWorld.outer());
+    assertEquals("HelloWorld", helloWorld.label().split(" ")[0]);
+    assertEquals(FeatureKind.Constructor, helloWorld.kind());
+    assertEquals(1, helloWorld.name().line());
+
+    // call to say in line 2
+    var say = index.CallsAt(2, 3).findFirst().get();
+    assertTrue(say.hover().contains("say"));
+  }
+
+  @Test
+  public void WriteRead() throws IOException
+  {
+    SourceText.setText(uri1, ManOrBoy);
+    var index = FeatureIndex.Create(uri1);
+    var file = Files.createTempFile("fuzion-feature-index", ".idx");
+    index.Write(file);
+    var read = FeatureIndex.Read(file);
+    assertEquals(index.features(), read.features());
+    assertEquals(index.calls(), read.calls());
+  }
+
+  @Test
+  public void StoreAndLoad() throws IOException
+  {
+    var cacheDir = Files.createTempDirectory("fuzion-feature-index");
+    FeatureIndex.SetCacheDir(cacheDir);
+    SourceText.setText(uri1, HelloWorld);
+    FeatureIndex.Store(uri1);
+    assertEquals(1, Files.list(cacheDir).count());
+    assertEquals(FeatureIndex.Create(uri1).features(), FeatureIndex.Of(uri1).get().features());
+  }
+
+}
@@ -32,6 +32,7 @@ import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Disabled;
 
+import dev.flang.ast.AbstractFeature;
 import dev.flang.shared.ASTWalker;
 import dev.flang.shared.FeatureTool;
 import dev.flang.shared.ParserTool;
@@ -49,6 +50,27 @@ public class FeatureToolTest extends BaseTest
     assertTrue(ast.contains("Call:called feature unknown"));
   }
 
+  @Test
+  public void CallsTo()
+  {
+    SourceText.setText(uri1, """
+      ex is
+        a => 42
+        say a
+        b := a + a
+      """);
+    var a = ParserTool
+      .DeclaredFeatures(ParserTool.TopLevelFeatures(uri1).findFirst().get())
+      .filter(f -> f.featureName().baseName().equals("a"))
+      .findFirst()
+      .get();
+    var calls = FeatureTool.CallsTo(a).toList();
+    assertEquals(3, calls.size());
+    assertTrue(calls.stream().allMatch(e -> e.getKey().calledFeature() == a));
+    // answered from the index again
+    assertEquals(calls, FeatureTool.CallsTo(a).toList());
+  }
+
   @Test
   public void CommentOf()
   {
@@ -162,6 +184,30 @@ public class FeatureToolTest extends BaseTest
     assertEquals(9, GetFeature("max").column());
   }
 
+  @Test
+  public void IsUsedInChoice()
+  {
+    SourceText.setText(uri1, """
+      ex is
+        red is
+        green is
+        blue is
+        color : choice red green is
+      """);
+    assertTrue(FeatureTool.IsUsedInChoice(GetFeatureNamed("red")));
+    assertTrue(FeatureTool.IsUsedInChoice(GetFeatureNamed("green")));
+    assertFalse(FeatureTool.IsUsedInChoice(GetFeatureNamed("blue")));
+  }
+
+  private AbstractFeature GetFeatureNamed(String name)
+  {
+    return ASTWalker
+      .Features(uri1)
+      .filter(af -> af.featureName().baseName().equals(name))
+      .findFirst()
+      .get();
+  }
+
   private SourcePosition GetFeature(String name)
   {
     var first_lambda_arg = FeatureTool.BareNamePosition(ASTWalker
@@ -27,6 +27,11 @@ Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
 
 package test.flang.shared;
 
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
 import org.junit.jupiter.api.Test;
 
 import dev.flang.shared.LexerTool;
@@ -108,4 +113,116 @@ public class LexerToolTest extends BaseTest
     assertTrue(LexerTool.TokensFrom(start).count() > 10);
     assertTrue(LexerTool.TokensFrom(start).anyMatch(t -> t.text().equals("i32")));
   }
+  @Test
+  public void TokensAfterEditsEqualTokensOfNewText()
+  {
+    SourceText.setText(uri1, Mandelbrot, 1);
+    TokensOf(uri1);
+    // insert a line with an interpolated string
+    SourceText.applyEdit(uri1, 2, 3, 0, 3, 0, "  x := \"{1+2} abc $x\"\n");
+    // join two lines
+    SourceText.applyEdit(uri1, 3, 5, 0, 6, 0, "");
+    // break a token
+    SourceText.applyEdit(uri1, 4, 1, 3, 1, 3, " ");
+
+    SourceText.setText(uri2, SourceText.getText(uri1));
+    assertEquals(TokensOf(uri2), TokensOf(uri1));
+  }
+
+  @Test
+  public void CursorAtMiddleOfToken()
+  {
+    SourceText.setText(uri1, ManOrBoy);
+
+    var cursor = LexerTool.CursorAt(Cursor(uri1, 2, 7));
+    assertEquals("i32", cursor.Text());
+    assertEquals(3, cursor.Start().line());
+    assertEquals(7, cursor.Start().column());
+
+    var tokens = LexerTool.TokensFrom(Cursor(uri1, 2, 7)).iterator();
+    while (cursor.Valid())
+      {
+        var token = tokens.next();
+        assertEquals(token.token(), cursor.Token());
+        assertEquals(token.text(), cursor.Text());
+        assertEquals(token.end().bytePos(), cursor.EndByte());
+        cursor.Next();
+      }
+    assertFalse(tokens.hasNext());
+  }
+
+  @Test
+  public void CommentBefore()
+  {
+    SourceText.setText(uri1, """
+      # first block
+
+      # second block
+        #   indented
+      ex is
+        x := 1 # trailing
+        y := 2
+      """);
+    assertEquals("second block" + System.lineSeparator() + "indented", LexerTool.CommentBefore(Cursor(uri1, 4, 0)));
+    assertEquals("first block", LexerTool.CommentBefore(Cursor(uri1, 1, 0)));
+    assertEquals("", LexerTool.CommentBefore(Cursor(uri1, 0, 0)));
+    assertEquals("", LexerTool.CommentBefore(Cursor(uri1, 6, 2)));
+  }
+
+  @Test
+  public void LexConcurrently() throws Exception
+  {
+    var stdin = System.in;
+    var executor = Executors.newFixedThreadPool(4);
+    try
+      {
+        var results = IntStream
+          .range(0, 16)
+          .mapToObj(i -> executor.submit(() -> LexerTool.IsValidIdentifier("abc" + i)
+            && !LexerTool.IsValidIdentifier(i + " abc")))
+          .toList();
+        for (var result : results)
+          {
+            assertTrue(result.get());
+          }
+      }
+    finally
+      {
+        executor.shutdown();
+      }
+    assertSame(stdin, System.in);
+  }
+
+  @Test
+  public void LexDocumentsConcurrently() throws Exception
+  {
+    var uris = List.of(uri1, uri2, uri3, uri4);
+    var texts = List.of(HelloWorld, ManOrBoy, PythagoreanTriple, UnknownCall);
+    IntStream.range(0, uris.size()).forEach(i -> SourceText.setText(uris.get(i), texts.get(i)));
+    var executor = Executors.newFixedThreadPool(uris.size());
+    try
+      {
+        var results = uris
+          .stream()
+          .map(uri -> executor.submit(() -> TokensOf(uri)))
+          .toList();
+        for (var i = 0; i < uris.size(); i++)
+          {
+            assertEquals(TokensOf(uris.get(i)), results.get(i).get());
+          }
+      }
+    finally
+      {
+        executor.shutdown();
+      }
+  }
+
+  private static List<String> TokensOf(URI uri)
+  {
+    return LexerTool
+      .TokensFrom(Cursor(uri, 0, 0))
+      .map(t -> t.token() + "@" + t.start().bytePos() + "-" + t.end().bytePos() + ":" + t.text())
+      .toList();
+  }
+
 }
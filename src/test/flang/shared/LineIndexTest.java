@@ -0,0 +1,127 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class LineIndexTest
+ *
+ *---------------------------------------------------------------------*/
+
+package test.flang.shared;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import dev.flang.shared.LineIndex;
+import dev.flang.shared.PositionEncoding;
+import dev.flang.util.SourceFile;
+import dev.flang.util.SourcePosition;
+
+public class LineIndexTest extends BaseTest
+{
+  private static SourceFile SourceFile(String text)
+  {
+    return new SourceFile(Path.of("/", "test.fz"), text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void NonAscii()
+  {
+    var sf = SourceFile("""
+      ex is
+        say ä😀x
+      """);
+    var index = LineIndex.Of(sf);
+    assertEquals(1, index.Line(0));
+    assertEquals(2, index.Line(6));
+    // ä is two bytes, 😀 four bytes and two UTF-16 code units
+    assertEquals(7, index.Column(12));
+    assertEquals(8, index.Column(14));
+    assertEquals(9, index.Column(18));
+    assertEquals(6, index.Utf16Column(12));
+    assertEquals(7, index.Utf16Column(14));
+    assertEquals(9, index.Utf16Column(18));
+    assertEquals(14, index.BytePos(2, 8));
+    assertEquals(18, index.BytePos(2, 9));
+    assertEquals(sf.byteLength(), index.BytePos(2, 100));
+    assertEquals(sf.byteLength(), index.BytePos(5, 1));
+  }
+
+  @Test
+  public void Encodings()
+  {
+    var index = LineIndex.Of(SourceFile("""
+      ex is
+        say ä😀x
+      """));
+    // x is at byte 18 of line 2 which starts at byte 6
+    assertEquals(12, index.Character(18, PositionEncoding.Utf8));
+    assertEquals(9, index.Character(18, PositionEncoding.Utf16));
+    assertEquals(8, index.Character(18, PositionEncoding.Utf32));
+    assertEquals(18, index.BytePos(2, 12, PositionEncoding.Utf8));
+    assertEquals(18, index.BytePos(2, 9, PositionEncoding.Utf16));
+    assertEquals(18, index.BytePos(2, 8, PositionEncoding.Utf32));
+    // in the middle of 😀
+    assertEquals(14, index.BytePos(2, 10, PositionEncoding.Utf8));
+    assertEquals(14, index.BytePos(2, 8, PositionEncoding.Utf16));
+    // past the end of the line
+    assertEquals(19, index.BytePos(2, 100, PositionEncoding.Utf16));
+    assertEquals(3, index.BytePos(1, 3, PositionEncoding.Utf8));
+  }
+
+  @Test
+  public void Negotiate()
+  {
+    assertEquals(PositionEncoding.Utf16, PositionEncoding.Negotiate(null));
+    assertEquals(PositionEncoding.Utf16, PositionEncoding.Negotiate(List.of("utf-32", "utf-16")));
+    assertEquals(PositionEncoding.Utf8, PositionEncoding.Negotiate(List.of("utf-16", "utf-8")));
+    assertEquals(4, PositionEncoding.Utf8.Length("ä😀"));
+  }
+
+  @Test
+  public void SameAsSourcePosition()
+  {
+    for (var text : new String[] { Mandelbrot, ManOrBoy, "ex is\n  say \"ä😀\"\n  say \"∀x\"" })
+      {
+        var sf = SourceFile(text);
+        var index = LineIndex.Of(sf);
+        for (var bytePos = 0; bytePos < sf.byteLength(); bytePos += sf.codePointSize(bytePos))
+          {
+            var pos = new SourcePosition(sf, bytePos);
+            assertEquals(pos.line(), index.Line(bytePos));
+            assertEquals(pos.column(), index.Column(bytePos));
+            assertEquals(bytePos, index.BytePos(pos.line(), pos.column()));
+          }
+      }
+  }
+
+  @Test
+  public void EmptyFile()
+  {
+    var index = LineIndex.Of(SourceFile(""));
+    assertEquals(1, index.Column(0));
+    assertEquals(0, index.Utf16Column(0));
+    assertEquals(0, index.BytePos(1, 1));
+  }
+
+}
@@ -29,12 +29,15 @@ Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
 package test.flang.shared;
 
 import java.nio.file.Path;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
 
 import dev.flang.shared.FeatureTool;
+import dev.flang.shared.ParsePipeline;
 import dev.flang.shared.ParserTool;
+import dev.flang.shared.ServePolicy;
 import dev.flang.shared.SourceText;
 import dev.flang.shared.Util;
 import dev.flang.util.SourceFile;
@@ -111,6 +114,27 @@ public class ParserToolTest extends BaseTest
     assertEquals(5, ParserTool.endOfFeature(level2).column());
   }
 
+  @Test
+  public void EndOfFeatureSiblings()
+  {
+    var sourceText = """
+      HelloWorld is
+        first is
+          say "first"
+        second is
+          say "second\"""";
+    SourceText.setText(uri1, sourceText);
+
+    var features = FeatureTool.SelfAndDescendants(ParserTool.TopLevelFeatures(uri1).findFirst().get())
+      .collect(Collectors.toMap(f -> f.qualifiedName(), f -> f, (a, b) -> a));
+
+    // first ends before second starts
+    assertEquals(3, ParserTool.endOfFeature(features.get("HelloWorld.first")).line());
+    // second is the last feature and ends at the end of the file
+    assertEquals(5, ParserTool.endOfFeature(features.get("HelloWorld.second")).line());
+    assertEquals(17, ParserTool.endOfFeature(features.get("HelloWorld.second")).column());
+  }
+
 
   @Test
   public void noSourceText()
@@ -148,6 +172,32 @@ public class ParserToolTest extends BaseTest
     assertTrue(ParserTool.DeclaredFeatures(ParserTool.Universe(uri1)).count() > 10);
   }
 
+  @Test
+  public void declaredFeaturesInternal()
+  {
+    SourceText.setText(uri1, """
+      ex(T type, a i32) is
+        inner => a + 1
+        for i in 1..a do
+          say i
+      """);
+    var f = ParserTool.TopLevelFeatures(uri1).findFirst().get();
+    var names = ParserTool
+      .DeclaredFeatures(f)
+      .map(x -> x.featureName().baseName())
+      .collect(Collectors.toSet());
+    assertTrue(names.containsAll(Set.of("T", "a", "inner")));
+    // the loop is declared as internal features of ex
+    var internal = ParserTool
+      .DeclaredFeatures(f, true)
+      .filter(x -> !names.contains(x.featureName().baseName()))
+      .toList();
+    assertFalse(internal.isEmpty());
+    assertTrue(internal.stream().allMatch(FeatureTool::IsInternal));
+    assertTrue(ParserTool.DeclaredFeatures(f).noneMatch(FeatureTool::IsInternal));
+    assertEquals(names.size(), ParserTool.DeclaredFeatures(f).count());
+  }
+
   @Test
   public void getMainFeatureTest()
   {
@@ -181,6 +231,110 @@ public class ParserToolTest extends BaseTest
     assertEquals(true, ParserTool.Errors(uri1).count() > 0);
   }
 
+  @Test
+  public void ParserCacheHitAfterSwitchingDocuments()
+  {
+    SourceText.setText(uri1, HelloWorld);
+    SourceText.setText(uri2, ManOrBoy);
+    var universe1 = ParserTool.Universe(uri1);
+    var universe2 = ParserTool.Universe(uri2);
+    assertNotSame(universe1, universe2);
+    assertSame(universe1, ParserTool.Universe(uri1));
+    assertSame(universe2, ParserTool.Universe(uri2));
+  }
+
+  @Test
+  public void ParserCacheHitAfterUndo()
+  {
+    SourceText.setText(uri1, HelloWorld);
+    var universe = ParserTool.Universe(uri1);
+    SourceText.setText(uri1, Mandelbrot);
+    assertNotSame(universe, ParserTool.Universe(uri1));
+    SourceText.setText(uri1, HelloWorld);
+    assertSame(universe, ParserTool.Universe(uri1));
+  }
+
+  @Test
+  public void ServeLastGoodWhileTyping()
+  {
+    SourceText.setText(uri1, HelloWorld, 1);
+    var universe = ParserTool.Universe(uri1);
+    // incomplete code in a new first line
+    SourceText.applyEdit(uri1, 2, 0, 0, 0, 0, "x :=" + System.lineSeparator());
+
+    assertSame(universe, ParserTool.Serve(ServePolicy.LastGood, () -> ParserTool.Universe(uri1)));
+    var helloWorld = ParserTool.Serve(ServePolicy.LastGood, () -> ParserTool.TopLevelFeatures(uri1)
+      .filter(f -> f.featureName().baseName().equals("HelloWorld"))
+      .findFirst()
+      .get());
+    assertEquals(2, ParserTool.CurrentLine(helloWorld.pos()).get());
+
+    assertNotSame(universe, ParserTool.Universe(uri1));
+  }
+
+  @Test
+  public void CurrentLineOfEditedLine()
+  {
+    SourceText.setText(uri1, HelloWorld, 1);
+    var helloWorld = ParserTool.TopLevelFeatures(uri1).findFirst().get();
+    SourceText.applyEdit(uri1, 2, 0, 0, 0, 0, "x :=" + System.lineSeparator());
+    assertEquals(2, ParserTool.CurrentLine(helloWorld.pos()).get());
+
+    SourceText.applyEdit(uri1, 3, 1, 0, 1, 0, "# ");
+    assertTrue(ParserTool.CurrentLine(helloWorld.pos()).isEmpty());
+  }
+
+  @Test
+  public void CurrentLineOfEndOfFeatureInLastGood()
+  {
+    SourceText.setText(uri1, HelloWorld, 1);
+    var helloWorld = ParserTool.TopLevelFeatures(uri1).findFirst().get();
+    var endLine = ParserTool.endOfFeature(helloWorld).line();
+    SourceText.applyEdit(uri1, 2, 0, 0, 0, 0, "x :=" + System.lineSeparator());
+
+    // the end is lexed from the text that was parsed, in its source file
+    assertSame(helloWorld.pos()._sourceFile, ParserTool.endOfFeature(helloWorld)._sourceFile);
+    assertEquals(endLine + 1, ParserTool.CurrentLine(ParserTool.endOfFeature(helloWorld)).get());
+  }
+
+  @Test
+  public void CloseDropsLastGood()
+  {
+    SourceText.setText(uri1, HelloWorld, 1);
+    var universe = ParserTool.Universe(uri1);
+    SourceText.applyEdit(uri1, 2, 0, 0, 0, 0, "x :=" + System.lineSeparator());
+    var edited = SourceText.getRawText(uri1);
+    SourceText.removeText(uri1);
+
+    // reopened, version numbers start again
+    SourceText.setText(uri1, edited, 1);
+    assertNotSame(universe, ParserTool.Serve(ServePolicy.LastGood, () -> ParserTool.Universe(uri1)));
+  }
+
+  @Test
+  public void ScheduledParseOfSupersededVersion()
+  {
+    SourceText.setText(uri3, ManOrBoy);
+    ParsePipeline.Schedule(uri3, SourceText.Version(uri3));
+    SourceText.setText(uri3, HelloWorld);
+    ParsePipeline.Schedule(uri3, SourceText.Version(uri3));
+    var feature = ParserTool.TopLevelFeatures(uri3).findFirst().get();
+    assertEquals("HelloWorld", feature.featureName().baseName());
+    assertSame(ParserTool.Universe(uri3), feature.outer());
+  }
+
+  @Test
+  public void getUriOfInMemorySource()
+  {
+    SourceText.setText(uri1, HelloWorld);
+    SourceText.setText(uri2, ManOrBoy);
+    var feature1 = ParserTool.TopLevelFeatures(uri1).findFirst().get();
+    var feature2 = ParserTool.TopLevelFeatures(uri2).findFirst().get();
+    assertEquals(uri1, ParserTool.getUri(feature1.pos()));
+    assertEquals(uri2, ParserTool.getUri(feature2.pos()));
+    assertEquals(HelloWorld, SourceText.getText(feature1.pos()));
+  }
+
   @Test
   public void getUriStdLibFile()
   {
@@ -195,6 +349,14 @@ public class ParserToolTest extends BaseTest
     assertTrue(ParserTool.Universe(uri).isUniverse());
   }
 
+  @Test
+  public void StdLibFilesShareUniverse()
+  {
+    var yak = ParserTool.getUri(new SourcePosition(new SourceFile(Path.of("fuzion/build/lib/yak.fz")), 0));
+    var say = ParserTool.getUri(new SourcePosition(new SourceFile(Path.of("fuzion/build/lib/say.fz")), 0));
+    assertSame(ParserTool.Universe(yak), ParserTool.Universe(say));
+  }
+
   @Test
   public void WarningsErrorsOfStdLibFile()
   {
@@ -0,0 +1,91 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class RopeTest
+ *
+ *---------------------------------------------------------------------*/
+
+package test.flang.shared;
+
+import org.junit.jupiter.api.Test;
+
+import dev.flang.shared.PositionEncoding;
+import dev.flang.shared.Rope;
+
+public class RopeTest extends BaseTest
+{
+  @Test
+  public void OfToString()
+  {
+    assertEquals("", Rope.Of("").toString());
+    assertEquals(LoremIpsum, Rope.Of(LoremIpsum).toString());
+    assertEquals(Mandelbrot, Rope.Of(Mandelbrot).toString());
+  }
+
+  @Test
+  public void LineStartAndOffset()
+  {
+    var rope = Rope.Of("""
+      ex is
+        say 😀
+      """);
+    assertEquals(3, rope.lineCount());
+    assertEquals(0, rope.LineStart(0));
+    assertEquals(6, rope.LineStart(1));
+    assertEquals(8, rope.Offset(1, 2));
+    // 😀 is two UTF-16 code units
+    assertEquals(14, rope.Offset(1, 100));
+    assertEquals(rope.length(), rope.Offset(5, 0));
+  }
+
+  @Test
+  public void OffsetInEncoding()
+  {
+    var rope = Rope.Of("""
+      ex is
+        say ä😀x
+      """);
+    // x is at offset 15, the line starts at 6
+    assertEquals(15, rope.Offset(1, 12, PositionEncoding.Utf8));
+    assertEquals(15, rope.Offset(1, 9, PositionEncoding.Utf16));
+    assertEquals(15, rope.Offset(1, 8, PositionEncoding.Utf32));
+    assertEquals(16, rope.Offset(1, 100, PositionEncoding.Utf8));
+  }
+
+  @Test
+  public void Replace()
+  {
+    var text = Mandelbrot;
+    var rope = Rope.Of(text);
+    for (int i = 0; i < 500; i++)
+      {
+        var start = (i * 7919) % (text.length() + 1);
+        var end = Math.min(text.length(), start + i % 13);
+        var insert = i % 5 == 0 ? "x\n" : "y";
+        text = text.substring(0, start) + insert + text.substring(end);
+        rope = rope.Replace(start, end, insert);
+      }
+    assertEquals(text, rope.toString());
+    assertEquals(text.split("\n", -1).length, rope.lineCount());
+  }
+
+}
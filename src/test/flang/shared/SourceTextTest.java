@@ -26,6 +26,8 @@ Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
 
 package test.flang.shared;
 
+import java.util.Optional;
+
 import org.eclipse.lsp4j.DiagnosticSeverity;
 import org.junit.jupiter.api.Test;
 
@@ -55,6 +57,49 @@ class SourceTextTest extends BaseTest
     assertEquals(true, sourceText.contains("yak(s Any) => io.out.print s"));
   }
 
+  @Test
+  public void ApplyEdit()
+  {
+    SourceText.setText(uri1, HelloWorld, 1);
+    // replace `World` by `Fuzion`
+    SourceText.applyEdit(uri1, 2, 1, 13, 1, 18, "Fuzion");
+    // insert a line
+    SourceText.applyEdit(uri1, 3, 2, 0, 2, 0, "  say 1" + System.lineSeparator());
+    assertEquals(3, SourceText.Version(uri1));
+    assertTrue(SourceText.getText(uri1).contains("say \"Hello Fuzion!\""));
+    assertTrue(SourceText.getText(uri1).contains("say 1"));
+    assertEquals(0, ParserTool.Errors(uri1).count());
+  }
+
+  @Test
+  public void MapLineThroughEdits()
+  {
+    SourceText.setText(uri1, """
+      ex is
+        a is
+        b is
+        c is
+      """, 1);
+    // insert two lines after `a is`
+    SourceText.applyEdit(uri1, 2, 1, 6, 1, 6, "\n  x is\n  y is");
+    // change `c`
+    SourceText.applyEdit(uri1, 3, 5, 2, 5, 3, "d");
+
+    assertEquals(Optional.of(1), SourceText.MapLine(uri1, 1, 1, 3));
+    assertEquals(Optional.of(5), SourceText.MapLine(uri1, 3, 1, 3));
+    // edited lines can not be mapped
+    assertEquals(Optional.empty(), SourceText.MapLine(uri1, 2, 1, 3));
+    assertEquals(Optional.empty(), SourceText.MapLine(uri1, 4, 1, 3));
+    // and back
+    assertEquals(Optional.of(3), SourceText.MapLine(uri1, 5, 3, 1));
+    assertEquals(Optional.empty(), SourceText.MapLine(uri1, 4, 3, 1));
+
+    // edits before replacing the whole text are forgotten
+    SourceText.setText(uri1, HelloWorld, 4);
+    assertFalse(SourceText.CanMapLines(uri1, 3));
+    assertEquals(Optional.empty(), SourceText.MapLine(uri1, 1, 3, 4));
+  }
+
   @Test
   public void ChoiceOfFullStopNoErrors()
   {
@@ -0,0 +1,94 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class SymbolTableTest
+ *
+ *---------------------------------------------------------------------*/
+
+package test.flang.shared;
+
+import org.junit.jupiter.api.Test;
+
+import dev.flang.shared.FeatureTool;
+import dev.flang.shared.ParserTool;
+import dev.flang.shared.SourceText;
+
+public class SymbolTableTest extends BaseTest
+{
+
+  @Test
+  public void Members()
+  {
+    SourceText.setText(uri1, """
+      ex is
+        alpha => 1
+        alps => 2
+        beta => 3
+      """);
+    var ex = ParserTool.TopLevelFeatures(uri1).findFirst().get();
+    var members = ParserTool.Symbols(uri1).Members(ex);
+    assertEquals(1, members.Named("beta").count());
+    assertEquals(0, members.Named("gamma").count());
+    assertEquals(
+      "alpha,alps",
+      String.join(",", members.Prefixed("al").map(f -> f.featureName().baseName()).toList()));
+  }
+
+  @Test
+  public void WithUniqueIdentifier()
+  {
+    SourceText.setText(uri1, HelloWorld);
+    var symbols = ParserTool.Symbols(uri1);
+    var helloWorld = ParserTool.TopLevelFeatures(uri1).findFirst().get();
+    assertEquals(helloWorld,
+      symbols.WithUniqueIdentifier(FeatureTool.UniqueIdentifier(helloWorld)).findFirst().get());
+    assertEquals(helloWorld, symbols.WithQualifiedName(helloWorld.qualifiedName()).findFirst().get());
+    assertTrue(symbols.All().Prefixed("Hello").anyMatch(f -> f == helloWorld));
+  }
+
+  @Test
+  public void AncestorsWithoutDuplicates()
+  {
+    SourceText.setText(uri1, """
+      ex is
+        a is
+          x => 1
+        b : a is
+        c : a is
+          redef x => 2
+        d : b, c is
+      """);
+    var symbols = ParserTool.Symbols(uri1);
+    var ex = ParserTool.TopLevelFeatures(uri1).findFirst().get();
+    var d = symbols.Members(ex).Named("d").findFirst().get();
+    var ancestors = symbols.Ancestors(d);
+    assertEquals(ancestors.size(), ancestors.stream().distinct().count());
+    assertEquals(
+      "b,c,a",
+      String.join(",", ancestors.stream().limit(3).map(f -> f.featureName().baseName()).toList()));
+    var x = symbols.VisibleMembers(d).Named("x").toList();
+    assertEquals(1, x.size());
+    assertEquals("c", x.get(0).outer().featureName().baseName());
+    assertSame(symbols.VisibleMembers(d), symbols.VisibleMembers(d));
+  }
+
+}
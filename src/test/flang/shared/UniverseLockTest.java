@@ -0,0 +1,121 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class UniverseLockTest
+ *
+ *---------------------------------------------------------------------*/
+
+package test.flang.shared;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+import dev.flang.shared.ParserTool;
+import dev.flang.shared.SourceText;
+import dev.flang.shared.concurrent.UniverseLock;
+
+public class UniverseLockTest extends BaseTest
+{
+
+  @Test
+  public void SameUniverseInParallelOtherUniverseWaits() throws Exception
+  {
+    SourceText.setText(uri1, HelloWorld);
+    SourceText.setText(uri2, ManOrBoy);
+    var resolved1 = ParserTool.Resolved(ParserTool.Universe(uri1));
+    var resolved2 = ParserTool.Resolved(ParserTool.Universe(uri2));
+    UniverseLock.Release();
+
+    var entered = new CountDownLatch(1);
+    var done = new CountDownLatch(1);
+    var other = CompletableFuture.runAsync(() -> {
+      UniverseLock.Enter(resolved1);
+      entered.countDown();
+      try
+        {
+          done.await();
+        }
+      catch (InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+        }
+      UniverseLock.Release();
+    });
+    entered.await();
+
+    assertTrue(UniverseLock.TryEnter(resolved1));
+    assertFalse(UniverseLock.TryEnter(resolved2));
+
+    done.countDown();
+    other.get();
+    assertTrue(UniverseLock.TryEnter(resolved2));
+    UniverseLock.Release();
+  }
+
+  @Test
+  public void SameUniverseWaitsWhileOtherUniverseIsQueued() throws Exception
+  {
+    SourceText.setText(uri1, HelloWorld);
+    SourceText.setText(uri2, ManOrBoy);
+    var resolved1 = ParserTool.Resolved(ParserTool.Universe(uri1));
+    var resolved2 = ParserTool.Resolved(ParserTool.Universe(uri2));
+    UniverseLock.Release();
+
+    var entered = new CountDownLatch(1);
+    var done = new CountDownLatch(1);
+    var holder = CompletableFuture.runAsync(() -> {
+      UniverseLock.Enter(resolved1);
+      entered.countDown();
+      try
+        {
+          done.await();
+        }
+      catch (InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+        }
+      UniverseLock.Release();
+    });
+    entered.await();
+    var waiter = CompletableFuture.runAsync(() -> {
+      UniverseLock.Enter(resolved2);
+      UniverseLock.Release();
+    });
+
+    var deadline = System.currentTimeMillis() + 5000;
+    while (UniverseLock.TryEnter(resolved1) && System.currentTimeMillis() < deadline)
+      {
+        UniverseLock.Release();
+        Thread.sleep(10);
+      }
+    assertFalse(UniverseLock.TryEnter(resolved1));
+
+    done.countDown();
+    holder.get();
+    waiter.get();
+    assertTrue(UniverseLock.TryEnter(resolved1));
+    UniverseLock.Release();
+  }
+
+}
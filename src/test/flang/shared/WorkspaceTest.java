@@ -0,0 +1,109 @@
+/*
+
+This file is part of the Fuzion language server protocol implementation.
+
+The Fuzion language server protocol implementation is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published
+by the Free Software Foundation, version 3 of the License.
+
+The Fuzion language server protocol implementation is distributed in the hope that it will be
+useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public
+License for more details.
+
+You should have received a copy of the GNU General Public License along with The
+Fuzion language implementation.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+/*-----------------------------------------------------------------------
+ *
+ * Tokiwa Software GmbH, Germany
+ *
+ * Source of class WorkspaceTest
+ *
+ *---------------------------------------------------------------------*/
+
+package test.flang.shared;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import dev.flang.shared.ParserTool;
+import dev.flang.shared.SourceText;
+import dev.flang.shared.Workspace;
+
+public class WorkspaceTest extends BaseTest
+{
+
+  private static final String Helper = """
+    helper(x i32) is
+      say x
+    """;
+
+  private static final String Main = """
+    main is
+      helper 42
+    """;
+
+  @TempDir
+  Path folder;
+
+  @AfterEach
+  public void ResetFolders()
+  {
+    Workspace.SetFolders(List.of());
+  }
+
+  @Test
+  public void CallsToInOtherFile() throws IOException
+  {
+    var helper = Files.writeString(folder.resolve("helper.fz"), Helper);
+    var main = Files.writeString(folder.resolve("main.fz"), Main);
+    Workspace.SetFolders(List.of(folder));
+
+    SourceText.setText(helper.toUri(), Helper);
+    var feature = ParserTool.TopLevelFeatures(helper.toUri()).findFirst().get();
+
+    assertEquals(Set.of(main.toAbsolutePath().normalize()), Workspace.Dependents(helper.toAbsolutePath().normalize()));
+    var calls = Workspace.CallsTo(feature);
+    assertEquals(1, calls.size());
+    assertEquals(main.toUri(), ParserTool.getUri(calls.get(0).getKey().pos()));
+  }
+
+  @Test
+  public void InvalidateRecomputesDependents() throws IOException
+  {
+    var helper = Files.writeString(folder.resolve("helper.fz"), Helper).toAbsolutePath().normalize();
+    var main = Files.writeString(folder.resolve("main.fz"), Main).toAbsolutePath().normalize();
+    Workspace.SetFolders(List.of(folder));
+    assertEquals(Set.of(main), Workspace.Dependents(helper));
+
+    Files.writeString(main, "main is\n  say 42\n");
+    Workspace.Invalidate(main.toUri());
+    assertEquals(Set.of(), Workspace.Dependents(helper));
+  }
+
+  @Test
+  public void CallsToSkipsUnsavedEdits() throws IOException
+  {
+    var helper = Files.writeString(folder.resolve("helper.fz"), Helper);
+    var main = Files.writeString(folder.resolve("main.fz"), Main);
+    Workspace.SetFolders(List.of(folder));
+
+    SourceText.setText(helper.toUri(), Helper);
+    // the positions of the call on disk are wrong for the text in memory
+    SourceText.setText(main.toUri(), "main is\n  say 0\n  helper 42\n");
+    var feature = ParserTool.TopLevelFeatures(helper.toUri()).findFirst().get();
+
+    assertEquals(0, Workspace.CallsTo(feature).size());
+  }
+
+}